@@ -0,0 +1,42 @@
+package org.qteam.tinyicon.bench;
+
+import org.openjdk.jmh.runner.options.*;
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.*;
+
+/**
+	Runs the benchmarks with the {@code gc} profiler always enabled, so every result reports both the throughput and the
+	allocation rate ({@code gc.alloc.rate.norm} is the number of bytes allocated per operation).<br>
+	All the usual {@code JMH} command line options are accepted (e.g. a regular expression to select the benchmarks).
+
+	<p>Example:
+	<blockquote>
+		{@code java -jar target/benchmarks.jar BitmapDecode -p bpp=8}
+	</blockquote>
+*/
+public final class Benchmarks
+{
+	// Constructor
+	private Benchmarks ()
+	{
+	}
+
+	/**
+		The entry point.
+		@param args The {@code JMH} command line options.
+		@throws Exception if the options are invalid or the benchmarks can't run.
+	*/
+	public static void main (String args []) throws Exception
+	{
+		final CommandLineOptions cmd = new CommandLineOptions (args);
+
+		if (cmd.shouldHelp () || cmd.shouldList () || cmd.shouldListProfilers () || cmd.shouldListResultFormats ())
+		{
+			Main.main (args);
+			return;
+		}
+
+		new Runner (new OptionsBuilder ().parent (cmd).addProfiler (GCProfiler.class).build ()).run ();
+	}
+}
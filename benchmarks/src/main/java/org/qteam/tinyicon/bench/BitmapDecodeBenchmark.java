@@ -0,0 +1,50 @@
+package org.qteam.tinyicon.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.qteam.tinyicon.*;
+import java.util.concurrent.*;
+import java.awt.image.*;
+
+/**
+	Decoding of bitmap entries: one benchmark per {@code bitCount} branch of the decoder (1, 4, 8, 24 and 32 bpp) and size.<br>
+	{@link #decode decode} measures the decoder alone (into a reused {@link DecoderContext}, so it should allocate almost nothing),
+	while {@link #parseAndDecode parseAndDecode} measures the whole path of a new {@link TinyIcon} (parsing plus a new image).
+*/
+@State (Scope.Thread)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class BitmapDecodeBenchmark
+{
+	@Param ({ "1", "4", "8", "24", "32" })
+	public int bpp;
+
+	@Param ({ "16", "32", "48", "64", "128", "256" })
+	public int size;
+
+	private byte ico [];
+	private Icon icon;
+	private DecoderContext ctx;
+
+	@Setup
+	public void setup () throws Exception
+	{
+		ico  = SyntheticIcons.icon (bpp * 1000 + size, SyntheticIcons.Entry.bitmap (bpp, size, size, SyntheticIcons.Mask.MIXED));
+		icon = new TinyIcon (ico).getIcon (0);
+		ctx  = new DecoderContext ();
+	}
+
+	@Benchmark
+	public BufferedImage decode ()
+	{
+		return (icon.getImage (ctx));
+	}
+
+	@Benchmark
+	public BufferedImage parseAndDecode () throws Exception
+	{
+		return (new TinyIcon (ico).getImage (0));
+	}
+}
@@ -0,0 +1,114 @@
+package org.qteam.tinyicon.bench;
+
+import java.nio.file.*;
+import java.util.*;
+import java.io.*;
+
+/**
+	A deterministic generator of a mixed {@code .ico} corpus, used by {@link ThroughputHarness}.<br>
+	The same count and seed always produce the same files. The corpus covers:
+	<ul>
+		<li>every color depth (1, 4, 8, 24 and 32 bpp) and both bitmap and compressed ({@code png}) entries;</li>
+		<li>the usual sizes (16 to 256 pixels, mostly compressed at 256) and odd, non-square sizes (1 to 65 pixels) that need row padding;</li>
+		<li>1 to 8 entries per file, and some files with 16 to 32 entries;</li>
+		<li>opaque, transparent and mixed {@code AND} masks.</li>
+	</ul>
+
+	<p>Usage:
+	<blockquote>
+		{@code java -cp target/benchmarks.jar org.qteam.tinyicon.bench.CorpusGenerator <dir> [count = 1000] [seed = 1]}
+	</blockquote>
+*/
+public final class CorpusGenerator
+{
+	private final static int SIZES [] = { 16, 24, 32, 48, 64, 128, 256 };
+	private final static int BPPS  [] = { 1, 4, 8, 24, 32 };
+
+	// Constructor
+	private CorpusGenerator ()
+	{
+	}
+
+	/**
+		Generates the corpus (existing files with the same names are overwritten).
+
+		@param dir   The destination directory (created if missing).
+		@param count The number of files.
+		@param seed  The seed of the corpus.
+		@return the paths of the generated files.
+		@throws IOException if a file can't be written.
+	*/
+	public static ArrayList <Path> generate (Path dir, int count, long seed) throws IOException
+	{
+		Files.createDirectories (dir);
+
+		final Random rnd = new Random (seed);
+		final ArrayList <Path> paths = new ArrayList (count);
+
+		for (int n = 0; n < count; n ++)
+		{
+			final int entries = (rnd.nextInt (20) == 0) ? 16 + rnd.nextInt (17) : 1 + rnd.nextInt (8);
+			final SyntheticIcons.Entry list [] = new SyntheticIcons.Entry [entries];
+
+			for (int e = 0; e < entries; e ++)
+				list [e] = entry (rnd);
+
+			final Path path = dir.resolve (String.format ("icon_%05d.ico", n));
+
+			Files.write (path, SyntheticIcons.icon (seed * 1000003 + n, list));
+			paths.add (path);
+		}
+
+		return (paths);
+	}
+
+	// A random entry: usual sizes (70%) or odd sizes (30%)
+	private static SyntheticIcons.Entry entry (Random rnd)
+	{
+		final int bpp = BPPS [rnd.nextInt (BPPS.length)];
+		final int width;
+		final int height;
+
+		if (rnd.nextInt (10) < 7)
+			width = height = SIZES [rnd.nextInt (SIZES.length)];
+		else
+		{
+			width  = 1 + rnd.nextInt (65);
+			height = 1 + rnd.nextInt (65);
+		}
+
+		// 256 pixels entries are usually compressed
+		if (rnd.nextInt (10) < ((width == 256) ? 8 : 1))
+			return (SyntheticIcons.Entry.png (width, height));
+
+		final int m = rnd.nextInt (10);
+		final SyntheticIcons.Mask mask = (m < 7) ? SyntheticIcons.Mask.MIXED : ((m < 9) ? SyntheticIcons.Mask.OPAQUE : SyntheticIcons.Mask.TRANSPARENT);
+
+		return (SyntheticIcons.Entry.bitmap (bpp, width, height, mask));
+	}
+
+	/**
+		The entry point.
+		@param args {@code <dir> [count] [seed]}.
+		@throws IOException if a file can't be written.
+	*/
+	public static void main (String args []) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.err.println ("Usage: CorpusGenerator <dir> [count = 1000] [seed = 1]");
+			System.exit (1);
+		}
+
+		final int count = (args.length > 1) ? Integer.parseInt (args [1]) : 1000;
+		final long seed = (args.length > 2) ? Long.parseLong (args [2]) : 1;
+
+		final ArrayList <Path> paths = generate (Paths.get (args [0]), count, seed);
+		long bytes = 0;
+
+		for (Path p : paths)
+			bytes += Files.size (p);
+
+		System.out.printf ("%d files, %.1f MB -> %s%n", paths.size (), bytes / 1048576.0, args [0]);
+	}
+}
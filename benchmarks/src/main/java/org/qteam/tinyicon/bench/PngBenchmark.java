@@ -0,0 +1,44 @@
+package org.qteam.tinyicon.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.qteam.tinyicon.*;
+import java.util.concurrent.*;
+import java.awt.image.*;
+
+/**
+	Compressed ({@code png}) entries: decoding (via {@link javax.imageio.ImageIO ImageIO}) and {@link Icon#getImageAsPng() getImageAsPng},
+	which returns the original {@code png} data without decoding.
+*/
+@State (Scope.Thread)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class PngBenchmark
+{
+	@Param ({ "16", "32", "48", "64", "128", "256" })
+	public int size;
+
+	private Icon icon;
+	private DecoderContext ctx;
+
+	@Setup
+	public void setup () throws Exception
+	{
+		icon = new TinyIcon (SyntheticIcons.icon (size, SyntheticIcons.Entry.png (size, size))).getIcon (0);
+		ctx  = new DecoderContext ();
+	}
+
+	@Benchmark
+	public BufferedImage decode ()
+	{
+		return (icon.getImage (ctx));
+	}
+
+	@Benchmark
+	public byte [] getImageAsPng ()
+	{
+		return (icon.getImageAsPng ());
+	}
+}
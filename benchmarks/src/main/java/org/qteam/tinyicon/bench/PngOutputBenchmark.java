@@ -0,0 +1,47 @@
+package org.qteam.tinyicon.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.qteam.tinyicon.*;
+import java.util.concurrent.*;
+
+/**
+	{@link Icon#getImageAsPng(PngEncoder) getImageAsPng} of bitmap entries, with {@link javax.imageio.ImageIO ImageIO} and the built-in encoder.<br>
+	The image is decoded once (in the setup), so only the {@code png} conversion is measured.
+*/
+@State (Scope.Thread)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class PngOutputBenchmark
+{
+	@Param ({ "IMAGEIO", "FASTEST", "SMALLEST" })
+	public String encoder;
+
+	@Param ({ "16", "48", "256" })
+	public int size;
+
+	private Icon icon;
+	private PngEncoder png;
+
+	@Setup
+	public void setup () throws Exception
+	{
+		icon = new TinyIcon (SyntheticIcons.icon (size, SyntheticIcons.Entry.bitmap (32, size, size, SyntheticIcons.Mask.MIXED))).getIcon (0);
+		icon.getImage ();
+
+		switch (encoder)
+		{
+			case "FASTEST":  png = PngEncoder.FASTEST;  break;
+			case "SMALLEST": png = PngEncoder.SMALLEST; break;
+			default:         png = null;
+		}
+	}
+
+	@Benchmark
+	public byte [] getImageAsPng ()
+	{
+		return (icon.getImageAsPng (png));
+	}
+}
@@ -0,0 +1,275 @@
+package org.qteam.tinyicon.bench;
+
+import org.qteam.tinyicon.*;
+import java.util.*;
+
+/**
+	A deterministic generator of {@code .ico} files, used by the benchmarks (so no binary test data is needed).<br>
+	The same seed and entries always produce the same bytes. Images look like typical icons: a shaded disc with a soft edge
+	on a transparent background, plus some seeded noise (so compressed entries don't compress unrealistically well).
+
+	<p>Example:
+	<blockquote>
+		{@code // A 32x32 8 bpp bitmap and a 256x256 png}<br>
+		{@code final byte ico [] = SyntheticIcons.icon (1, Entry.bitmap (8, 32, 32, Mask.MIXED), Entry.png (256, 256));}
+	</blockquote>
+*/
+public final class SyntheticIcons
+{
+	/** The shape of the {@code AND} mask of a bitmap entry. */
+	public enum Mask
+	{
+		/** All pixels are opaque (the mask is all 0). */
+		OPAQUE,
+
+		/** All pixels are transparent (the mask is all 1). */
+		TRANSPARENT,
+
+		/** The pixels outside the disc are transparent. */
+		MIXED
+	}
+
+	/** An entry of a generated icon. */
+	public static final class Entry
+	{
+		final int bpp;
+		final int width;
+		final int height;
+		final boolean png;
+		final Mask mask;
+
+		private Entry (int bpp, int width, int height, boolean png, Mask mask)
+		{
+			this.bpp    = bpp;
+			this.width  = width;
+			this.height = height;
+			this.png    = png;
+			this.mask   = mask;
+		}
+
+		/**
+			A bitmap entry.
+
+			@param bpp    The bits per pixel (1, 4, 8, 24 or 32).
+			@param width  The width of the image.
+			@param height The height of the image.
+			@param mask   The {@code AND} mask (for 32 bpp entries the alpha channel follows the mask too).
+			@return the entry.
+		*/
+		public static Entry bitmap (int bpp, int width, int height, Mask mask)
+		{
+			if ((bpp != 1) && (bpp != 4) && (bpp != 8) && (bpp != 24) && (bpp != 32))
+				throw new IllegalArgumentException ("Invalid bpp: " + bpp);
+
+			return (new Entry (bpp, width, height, false, mask));
+		}
+
+		/**
+			A compressed ({@code png}, 32 bpp) entry.
+
+			@param width  The width of the image.
+			@param height The height of the image.
+			@return the entry.
+		*/
+		public static Entry png (int width, int height)
+		{
+			return (new Entry (32, width, height, true, Mask.MIXED));
+		}
+	}
+
+	// Sizes of ICONDIR, ICONDIRENTRY and BITMAPINFOHEADER
+	private final static int ICONDIR_SIZE      = 6;
+	private final static int ICONDIRENTRY_SIZE = 16;
+	private final static int BIH_SIZE          = 40;
+
+	// Constructor
+	private SyntheticIcons ()
+	{
+	}
+
+	/**
+		Generates a {@code .ico} file.
+
+		@param seed    The seed of the pseudo-random content.
+		@param entries The entries of the icon (in file order).
+		@return the {@code .ico} data.
+	*/
+	public static byte [] icon (long seed, Entry... entries)
+	{
+		final Random rnd = new Random (seed);
+		final byte data [][] = new byte [entries.length][];
+
+		int size = ICONDIR_SIZE + ICONDIRENTRY_SIZE * entries.length;
+
+		for (int n = 0; n < entries.length; n ++)
+		{
+			final Entry e = entries [n];
+			final int argb [] = pixels (e.width, e.height, e.mask, rnd);
+
+			data [n] = e.png ? PngEncoder.SMALLEST.encode (argb, 0, e.width, e.width, e.height) : bitmap (e, argb, rnd);
+			size += data [n].length;
+		}
+
+		final byte ico [] = new byte [size];
+
+		putWord (ico, 0, 0);
+		putWord (ico, 2, 1);
+		putWord (ico, 4, entries.length);
+
+		int ofs = ICONDIR_SIZE + ICONDIRENTRY_SIZE * entries.length;
+
+		for (int n = 0; n < entries.length; n ++)
+		{
+			final Entry e = entries [n];
+			final int ide = ICONDIR_SIZE + ICONDIRENTRY_SIZE * n;
+
+			// Width and height 0 mean 256 (or more)
+			ico [ide]     = (byte) ((e.width  >= 256) ? 0 : e.width);
+			ico [ide + 1] = (byte) ((e.height >= 256) ? 0 : e.height);
+			ico [ide + 2] = (byte) ((e.bpp < 8) ? (1 << e.bpp) : 0);
+
+			putWord  (ico, ide + 4, 1);
+			putWord  (ico, ide + 6, e.bpp);
+			putDword (ico, ide + 8, data [n].length);
+			putDword (ico, ide + 12, ofs);
+
+			System.arraycopy (data [n], 0, ico, ofs, data [n].length);
+			ofs += data [n].length;
+		}
+
+		return (ico);
+	}
+
+	// ARGB pixels: a shaded disc, with a soft edge, on a transparent background
+	private static int [] pixels (int width, int height, Mask mask, Random rnd)
+	{
+		final int argb [] = new int [width * height];
+
+		final double cx = width  / 2.0;
+		final double cy = height / 2.0;
+		final double r  = Math.min (width, height) / 2.0;
+
+		final int hue = rnd.nextInt (0x1000000);
+
+		for (int y = 0; y < height; y ++)
+		{
+			for (int x = 0; x < width; x ++)
+			{
+				final double d = Math.hypot (x + 0.5 - cx, y + 0.5 - cy) / r;
+				final int shade = (int) (255 * (1 - 0.6 * d * d)) + rnd.nextInt (9) - 4;
+
+				final int cr = clamp ((((hue >> 16) & 0xFF) + shade) >> 1);
+				final int cg = clamp ((((hue >> 8) & 0xFF) + shade) >> 1);
+				final int cb = clamp (((hue & 0xFF) + shade) >> 1);
+
+				final int a;
+
+				switch (mask)
+				{
+					case OPAQUE:      a = 0xFF; break;
+					case TRANSPARENT: a = 0;    break;
+					default:          a = clamp ((int) ((1 - d) * r * 255));
+				}
+
+				argb [y * width + x] = (a << 24) | (cr << 16) | (cg << 8) | cb;
+			}
+		}
+
+		return (argb);
+	}
+
+	// BITMAPINFOHEADER + palette + XOR bitmap + AND bitmap (rows bottom-up, dword aligned)
+	private static byte [] bitmap (Entry e, int argb [], Random rnd)
+	{
+		final int width  = e.width;
+		final int height = e.height;
+		final int bpp    = e.bpp;
+
+		final int colors      = (bpp <= 8) ? (1 << bpp) : 0;
+		final int xor_stride  = ((width * bpp + 31) >> 5) << 2;
+		final int and_stride  = ((width + 31) >> 5) << 2;
+		final int pal_ofs     = BIH_SIZE;
+		final int xor_ofs     = pal_ofs + (colors << 2);
+		final int and_ofs     = xor_ofs + xor_stride * height;
+
+		final byte bmp [] = new byte [and_ofs + and_stride * height];
+
+		putDword (bmp, 0, BIH_SIZE);
+		putDword (bmp, 4, width);
+		putDword (bmp, 8, height << 1);
+		putWord  (bmp, 12, 1);
+		putWord  (bmp, 14, bpp);
+		putDword (bmp, 20, bmp.length - BIH_SIZE);
+
+		// Palette (BGR0): the first entry is black, the others are random
+		for (int c = 1; c < colors; c ++)
+			putDword (bmp, pal_ofs + (c << 2), rnd.nextInt (0x1000000));
+
+		for (int y = 0; y < height; y ++)
+		{
+			final int src = (height - 1 - y) * width;
+			final int xor_row = xor_ofs + xor_stride * y;
+			final int and_row = and_ofs + and_stride * y;
+
+			for (int x = 0; x < width; x ++)
+			{
+				final int c = argb [src + x];
+
+				switch (bpp)
+				{
+					// Palette index from the shade (the palette is random anyway)
+					case 1:
+					case 4:
+					case 8:
+					{
+						final int idx = ((c & 0xFF) + x / 4) & (colors - 1);
+						final int bit = x * bpp;
+
+						bmp [xor_row + (bit >> 3)] |= (byte) (idx << (8 - bpp - (bit & 7)));
+						break;
+					}
+
+					case 24:
+					{
+						final int p = xor_row + x * 3;
+
+						bmp [p]     = (byte) c;
+						bmp [p + 1] = (byte) (c >> 8);
+						bmp [p + 2] = (byte) (c >> 16);
+						break;
+					}
+
+					default:
+						putDword (bmp, xor_row + (x << 2), c);
+				}
+
+				// 1 = transparent
+				if ((c >>> 24) == 0)
+					bmp [and_row + (x >> 3)] |= (byte) (0x80 >> (x & 7));
+			}
+		}
+
+		return (bmp);
+	}
+
+	private static int clamp (int v)
+	{
+		return ((v < 0) ? 0 : ((v > 255) ? 255 : v));
+	}
+
+	// Little-endian
+	private static void putWord (byte buf [], int ofs, int val)
+	{
+		buf [ofs]     = (byte) val;
+		buf [ofs + 1] = (byte) (val >>> 8);
+	}
+
+	// Little-endian
+	private static void putDword (byte buf [], int ofs, int val)
+	{
+		buf [ofs]     = (byte) val;
+		buf [ofs + 1] = (byte) (val >>> 8);
+		buf [ofs + 2] = (byte) (val >>> 16);
+		buf [ofs + 3] = (byte) (val >>> 24);
+	}
+}
@@ -0,0 +1,227 @@
+package org.qteam.tinyicon.bench;
+
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.*;
+import org.qteam.tinyicon.*;
+import java.nio.file.*;
+import java.util.*;
+import java.io.*;
+
+/**
+	An end-to-end throughput harness: loads a whole corpus through {@link TinyIcon} (open the file, parse it and decode every image)
+	with 1, 2, 4, ... up to N threads, and reports files/s, MB/s, latency percentiles (per file) and the speedup over one thread.<br>
+	Each run processes the whole corpus the given number of times; files are handed out to the threads one at a time, so slow files
+	don't leave threads idle. A warm-up run (all threads) comes first.
+
+	<p>If the corpus directory has no {@code .ico} files, a default corpus is generated first (See {@link CorpusGenerator}).
+
+	<p>Usage:
+	<blockquote>
+		{@code java -cp target/benchmarks.jar org.qteam.tinyicon.bench.ThroughputHarness <dir> [max_threads = cores] [passes = 3]}
+	</blockquote>
+*/
+public final class ThroughputHarness
+{
+	// The default corpus
+	private final static int CORPUS_SIZE = 1000;
+	private final static long CORPUS_SEED = 1;
+
+	// Constructor
+	private ThroughputHarness ()
+	{
+	}
+
+	// The result of a run
+	private static final class Run
+	{
+		final int threads;
+		final long files;
+		final long bytes;
+		final long errors;
+		final long nanos;
+		final long latencies [];
+
+		Run (int threads, long files, long bytes, long errors, long nanos, long latencies [])
+		{
+			this.threads   = threads;
+			this.files     = files;
+			this.bytes     = bytes;
+			this.errors    = errors;
+			this.nanos     = nanos;
+			this.latencies = latencies;
+		}
+
+		// The p-th percentile (nearest rank) in microseconds
+		double percentile (double p)
+		{
+			final int rank = (int) Math.ceil (p / 100 * latencies.length);
+			return (latencies [Math.max (0, Math.min (latencies.length - 1, rank - 1))] / 1000.0);
+		}
+	}
+
+	/**
+		Processes all files {@code passes} times with the given number of threads.
+
+		@param paths   The corpus.
+		@param sizes   The size of each file.
+		@param threads The number of threads.
+		@param passes  How many times the corpus is processed.
+		@return the result.
+		@throws InterruptedException if interrupted while waiting for the threads.
+	*/
+	private static Run run (List <Path> paths, long sizes [], int threads, int passes) throws InterruptedException
+	{
+		final int total = paths.size () * passes;
+		final AtomicInteger next = new AtomicInteger ();
+		final AtomicLong errors = new AtomicLong ();
+
+		final long latencies [] = new long [total];
+		final CountDownLatch start = new CountDownLatch (1);
+		final Thread workers [] = new Thread [threads];
+
+		for (int t = 0; t < threads; t ++)
+		{
+			workers [t] = new Thread (() ->
+			{
+				try
+				{
+					start.await ();
+				}
+				catch (InterruptedException e)
+				{
+					return;
+				}
+
+				int n;
+
+				while ((n = next.getAndIncrement ()) < total)
+				{
+					final long t0 = System.nanoTime ();
+
+					if (!load (paths.get (n % paths.size ())))
+						errors.incrementAndGet ();
+
+					latencies [n] = System.nanoTime () - t0;
+				}
+			}, "harness-" + t);
+
+			workers [t].start ();
+		}
+
+		final long t0 = System.nanoTime ();
+		start.countDown ();
+
+		for (Thread w : workers)
+			w.join ();
+
+		final long nanos = System.nanoTime () - t0;
+
+		long bytes = 0;
+
+		for (int n = 0; n < total; n ++)
+			bytes += sizes [n % paths.size ()];
+
+		Arrays.sort (latencies);
+		return (new Run (threads, total, bytes, errors.get (), nanos, latencies));
+	}
+
+	// Open, parse and decode every image of a file
+	private static boolean load (Path path)
+	{
+		try
+		{
+			final TinyIcon ti = new TinyIcon (path);
+			boolean ok = true;
+
+			for (int i = 0; i < ti.getNumOfIcons (); i ++)
+				ok &= (ti.getImage (i) != null);
+
+			return (ok);
+		}
+		catch (IOException | InvalidIconException | InvalidIconDataException | RuntimeException e)
+		{
+			return (false);
+		}
+	}
+
+	/**
+		The entry point.
+		@param args {@code <dir> [max_threads] [passes]}.
+		@throws Exception if the corpus can't be read or generated.
+	*/
+	public static void main (String args []) throws Exception
+	{
+		if (args.length < 1)
+		{
+			System.err.println ("Usage: ThroughputHarness <dir> [max_threads = cores] [passes = 3]");
+			System.exit (1);
+		}
+
+		final Path dir = Paths.get (args [0]);
+		final int max_threads = (args.length > 1) ? Integer.parseInt (args [1]) : Runtime.getRuntime ().availableProcessors ();
+		final int passes = (args.length > 2) ? Integer.parseInt (args [2]) : 3;
+
+		ArrayList <Path> paths = list (dir);
+
+		if (paths.isEmpty ())
+		{
+			System.out.printf ("Generating %d files in %s%n", CORPUS_SIZE, dir);
+			paths = CorpusGenerator.generate (dir, CORPUS_SIZE, CORPUS_SEED);
+		}
+
+		final long sizes [] = new long [paths.size ()];
+		long corpus_bytes = 0;
+
+		for (int n = 0; n < sizes.length; n ++)
+			corpus_bytes += (sizes [n] = Files.size (paths.get (n)));
+
+		System.out.printf ("Corpus: %d files, %.1f MB; %d passes per run%n", paths.size (), corpus_bytes / 1048576.0, passes);
+
+		// Warm-up
+		run (paths, sizes, max_threads, passes);
+
+		// 1, 2, 4, ... max_threads
+		final ArrayList <Integer> counts = new ArrayList ();
+
+		for (int t = 1; t < max_threads; t <<= 1)
+			counts.add (t);
+
+		counts.add (max_threads);
+
+		System.out.printf ("%n%7s %10s %8s %9s %9s %9s %9s %9s %8s %6s%n", "threads", "files/s", "MB/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "speedup", "errors");
+
+		double base = 0;
+
+		for (int threads : counts)
+		{
+			final Run r = run (paths, sizes, threads, passes);
+
+			final double secs = r.nanos / 1e9;
+			final double fps  = r.files / secs;
+
+			if (base == 0)
+				base = fps;
+
+			System.out.printf ("%7d %10.0f %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f %7.2fx %6d%n", r.threads, fps, r.bytes / 1048576.0 / secs,
+				r.percentile (50), r.percentile (90), r.percentile (99), r.percentile (99.9), r.percentile (100), fps / base, r.errors);
+		}
+	}
+
+	// The .ico files of a directory (sorted by name), or an empty list
+	private static ArrayList <Path> list (Path dir) throws IOException
+	{
+		final ArrayList <Path> paths = new ArrayList ();
+
+		if (!Files.isDirectory (dir))
+			return (paths);
+
+		try (final DirectoryStream <Path> ds = Files.newDirectoryStream (dir, "*.ico"))
+		{
+			for (Path p : ds)
+				paths.add (p);
+		}
+
+		Collections.sort (paths);
+		return (paths);
+	}
+}
@@ -0,0 +1,66 @@
+package org.qteam.tinyicon.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.qteam.tinyicon.*;
+import java.util.concurrent.*;
+import java.util.*;
+
+/**
+	The operations of {@link TinyIcon} that only rely on the icon information (no decoding): parsing, {@link TinyIcon#sortIcons(IconSort, IconSort) sortIcons},
+	{@link TinyIcon#getIcon(java.util.function.Predicate) getIcon (Predicate)} and the equivalent {@link IconIndex} lookup.<br>
+	The icon is a typical application icon: 16 to 256 pixels at 4, 8 and 32 bpp (the 256x256 entries are compressed).
+*/
+@State (Scope.Thread)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class TinyIconBenchmark
+{
+	private final static int SIZES [] = { 16, 24, 32, 48, 64, 128, 256 };
+	private final static int BPPS  [] = { 4, 8, 32 };
+
+	private byte ico [];
+	private TinyIcon ti;
+
+	@Setup
+	public void setup () throws Exception
+	{
+		final ArrayList <SyntheticIcons.Entry> entries = new ArrayList ();
+
+		for (int size : SIZES)
+		{
+			for (int bpp : BPPS)
+				entries.add ((size == 256) ? SyntheticIcons.Entry.png (size, size) : SyntheticIcons.Entry.bitmap (bpp, size, size, SyntheticIcons.Mask.MIXED));
+		}
+
+		ico = SyntheticIcons.icon (42, entries.toArray (new SyntheticIcons.Entry [0]));
+		ti  = new TinyIcon (ico);
+	}
+
+	@Benchmark
+	public TinyIcon parse () throws Exception
+	{
+		return (new TinyIcon (ico));
+	}
+
+	@Benchmark
+	public Icon sortIcons ()
+	{
+		ti.sortIcons (IconSort.BY_RESOLUTION_DESCENDING, IconSort.BY_BPP_DESCENDING);
+		return (ti.getIcon (0));
+	}
+
+	@Benchmark
+	public Icon getIconPredicate ()
+	{
+		return (ti.getIcon (i -> (i.getWidth () == 48) && (i.getBpp () == 32)));
+	}
+
+	@Benchmark
+	public Icon getIndexBest ()
+	{
+		return (ti.getIndex ().getBest (48, 48, 32));
+	}
+}
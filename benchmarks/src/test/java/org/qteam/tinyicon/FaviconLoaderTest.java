@@ -0,0 +1,229 @@
+package org.qteam.tinyicon;
+
+import com.sun.net.httpserver.*;
+import org.qteam.tinyicon.bench.*;
+import java.util.zip.*;
+import java.nio.*;
+import org.junit.*;
+import java.net.*;
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+	Checks {@link FaviconLoader} against a local stub HTTP server: compressed bodies, pre-sizing, deadline, body size cap and
+	response codes ({@code 404}, {@code 304}).
+*/
+public class FaviconLoaderTest
+{
+	// Bigger than the initial buffer used when the length is unknown
+	private final static byte ICO [] = SyntheticIcons.icon (1, SyntheticIcons.Entry.bitmap (32, 64, 64, SyntheticIcons.Mask.MIXED));
+
+	private final static String ETAG          = "\"v1\"";
+	private final static String LAST_MODIFIED = "Mon, 05 Oct 2026 10:00:00 GMT";
+
+	private HttpServer server;
+	private String base;
+
+	@Before
+	public void start () throws Exception
+	{
+		server = HttpServer.create (new InetSocketAddress ("127.0.0.1", 0), 0);
+
+		server.createContext ("/plain/",   (x) -> send (x, null, ICO, true));
+		server.createContext ("/chunked/", (x) -> send (x, null, ICO, false));
+		server.createContext ("/gzip/",    (x) -> send (x, "gzip", gzip (ICO), true));
+		server.createContext ("/deflate/", (x) -> send (x, "deflate", deflate (ICO), true));
+		server.createContext ("/huge/",    (x) -> send (x, "gzip", gzip (new byte [(1 << 24) + 1]), true));
+		server.createContext ("/missing/", (x) -> { x.sendResponseHeaders (404, -1); x.close (); });
+
+		// A few bytes, then nothing more
+		server.createContext
+		(
+			"/stalled/",
+			(x) ->
+			{
+				x.sendResponseHeaders (200, ICO.length);
+				x.getResponseBody ().write (ICO, 0, 16);
+				x.getResponseBody ().flush ();
+
+				try
+				{
+					Thread.sleep (5000);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread ().interrupt ();
+				}
+
+				x.close ();
+			}
+		);
+
+		// 304 when both validators match
+		server.createContext
+		(
+			"/validated/",
+			(x) ->
+			{
+				x.getResponseHeaders ().set ("ETag", ETAG);
+				x.getResponseHeaders ().set ("Last-Modified", LAST_MODIFIED);
+
+				if (ETAG.equals (x.getRequestHeaders ().getFirst ("If-None-Match")) && LAST_MODIFIED.equals (x.getRequestHeaders ().getFirst ("If-Modified-Since")))
+				{
+					x.sendResponseHeaders (304, -1);
+					x.close ();
+				}
+				else
+					send (x, null, ICO, true);
+			}
+		);
+
+		server.setExecutor (java.util.concurrent.Executors.newCachedThreadPool ());
+		server.start ();
+
+		base = "http://127.0.0.1:" + server.getAddress ().getPort ();
+	}
+
+	@After
+	public void stop ()
+	{
+		server.stop (0);
+	}
+
+	private static void send (HttpExchange x, String encoding, byte body [], boolean length) throws IOException
+	{
+		if (encoding != null)
+			x.getResponseHeaders ().set ("Content-Encoding", encoding);
+
+		// 0 = chunked (no Content-Length)
+		x.sendResponseHeaders (200, length ? body.length : 0);
+		x.getResponseBody ().write (body);
+		x.close ();
+	}
+
+	private static byte [] gzip (byte data []) throws IOException
+	{
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream ();
+
+		try (final GZIPOutputStream os = new GZIPOutputStream (baos))
+		{
+			os.write (data);
+		}
+
+		return (baos.toByteArray ());
+	}
+
+	private static byte [] deflate (byte data []) throws IOException
+	{
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream ();
+
+		try (final DeflaterOutputStream os = new DeflaterOutputStream (baos))
+		{
+			os.write (data);
+		}
+
+		return (baos.toByteArray ());
+	}
+
+	private static byte [] bytes (IconReader reader)
+	{
+		final ByteBuffer bb = reader.slice (0, reader.length ());
+		final byte data [] = new byte [bb.remaining ()];
+
+		bb.get (data);
+		return (data);
+	}
+
+	@Test
+	public void contentLength () throws Exception
+	{
+		final IconReader r = new FaviconLoader ().read (base + "/plain");
+
+		assertArrayEquals (ICO, bytes (r));
+
+		// Pre-sized from the Content-Length: the data is read into an array of the exact size
+		assertEquals (ICO.length, r.slice (0, r.length ()).array ().length);
+	}
+
+	@Test
+	public void noContentLength () throws Exception
+	{
+		assertArrayEquals (ICO, bytes (new FaviconLoader ().read (base + "/chunked")));
+	}
+
+	@Test
+	public void gzip () throws Exception
+	{
+		assertArrayEquals (ICO, bytes (new FaviconLoader ().read (base + "/gzip")));
+	}
+
+	@Test
+	public void deflate () throws Exception
+	{
+		assertArrayEquals (ICO, bytes (new FaviconLoader ().read (base + "/deflate")));
+	}
+
+	@Test
+	public void load () throws Exception
+	{
+		assertEquals (1, new FaviconLoader ().load (base + "/gzip").getNumOfIcons ());
+	}
+
+	@Test (expected = FileNotFoundException.class)
+	public void notFound () throws Exception
+	{
+		new FaviconLoader ().read (base + "/missing");
+	}
+
+	@Test
+	public void deadline () throws Exception
+	{
+		final FaviconLoader loader = new FaviconLoader (null, 2000, 0, 300);
+		final long start = System.nanoTime ();
+
+		try
+		{
+			loader.read (base + "/stalled");
+			fail ("The deadline didn't fire");
+		}
+		catch (SocketTimeoutException e)
+		{
+			final long elapsed = (System.nanoTime () - start) / 1000000;
+			assertTrue ("Deadline fired after " + elapsed + " ms", elapsed < 3000);
+		}
+	}
+
+	@Test
+	public void bodyTooLarge () throws Exception
+	{
+		try
+		{
+			new FaviconLoader ().read (base + "/huge");
+			fail ("A body over the size cap was accepted");
+		}
+		catch (IOException e)
+		{
+			assertTrue (e.getMessage (), e.getMessage ().startsWith ("Data too large"));
+		}
+	}
+
+	@Test
+	public void notModified () throws Exception
+	{
+		final FaviconLoader loader = new FaviconLoader ();
+		final URL url = FaviconLoader.faviconUrl (base + "/validated");
+
+		final FaviconResponse full = loader.fetch (url, null, null);
+
+		assertEquals (200, full.code);
+		assertEquals (ETAG, full.etag);
+		assertEquals (LAST_MODIFIED, full.last_modified);
+		assertArrayEquals (ICO, bytes (full.body));
+
+		final FaviconResponse cond = loader.fetch (url, full.etag, full.last_modified);
+
+		assertEquals (304, cond.code);
+		assertNull (cond.body);
+	}
+}
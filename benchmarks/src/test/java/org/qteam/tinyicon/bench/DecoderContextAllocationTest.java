@@ -0,0 +1,93 @@
+package org.qteam.tinyicon.bench;
+
+import java.lang.management.*;
+import org.qteam.tinyicon.*;
+import java.awt.image.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+	Checks that decoding the same bitmap again and again with a reused {@link DecoderContext} allocates (almost) nothing:
+	the bytes allocated by the current thread are measured with {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long) getThreadAllocatedBytes}
+	across many steady-state decodes.
+*/
+public class DecoderContextAllocationTest
+{
+	// Decodes before measuring (JIT warm-up) and measured decodes
+	private final static int WARMUP  = 20000;
+	private final static int DECODES  = 2000;
+
+	// Allowed bytes per decode (a new 64x64 image alone takes 16 KB)
+	private final static long MAX_BYTES_PER_DECODE = 512;
+
+	private static com.sun.management.ThreadMXBean threadBean ()
+	{
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean ();
+
+		Assume.assumeTrue ("com.sun.management.ThreadMXBean not available", bean instanceof com.sun.management.ThreadMXBean);
+
+		final com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+
+		Assume.assumeTrue ("Thread allocation measurement not supported", sun.isThreadAllocatedMemorySupported ());
+		sun.setThreadAllocatedMemoryEnabled (true);
+
+		return (sun);
+	}
+
+	private static void check (int bpp, SyntheticIcons.Mask mask) throws Exception
+	{
+		final com.sun.management.ThreadMXBean bean = threadBean ();
+		final long tid = Thread.currentThread ().getId ();
+
+		final Icon icon = new TinyIcon (SyntheticIcons.icon (bpp, SyntheticIcons.Entry.bitmap (bpp, 64, 64, mask))).getIcon (0);
+		final DecoderContext ctx = new DecoderContext ();
+
+		final BufferedImage first = icon.getImage (ctx);
+		assertNotNull (first);
+
+		for (int n = 0; n < WARMUP; n ++)
+			icon.getImage (ctx);
+
+		final long before = bean.getThreadAllocatedBytes (tid);
+		BufferedImage img = null;
+
+		for (int n = 0; n < DECODES; n ++)
+			img = icon.getImage (ctx);
+
+		final long per_decode = (bean.getThreadAllocatedBytes (tid) - before) / DECODES;
+
+		assertSame ("The image of the context must be reused", first, img);
+		assertTrue (bpp + " bpp: " + per_decode + " bytes per decode (max " + MAX_BYTES_PER_DECODE + ")", per_decode <= MAX_BYTES_PER_DECODE);
+	}
+
+	@Test
+	public void bitmap1 () throws Exception
+	{
+		check (1, SyntheticIcons.Mask.MIXED);
+	}
+
+	@Test
+	public void bitmap4 () throws Exception
+	{
+		check (4, SyntheticIcons.Mask.MIXED);
+	}
+
+	@Test
+	public void bitmap8 () throws Exception
+	{
+		check (8, SyntheticIcons.Mask.MIXED);
+	}
+
+	@Test
+	public void bitmap24 () throws Exception
+	{
+		check (24, SyntheticIcons.Mask.MIXED);
+	}
+
+	@Test
+	public void bitmap32 () throws Exception
+	{
+		check (32, SyntheticIcons.Mask.MIXED);
+	}
+}
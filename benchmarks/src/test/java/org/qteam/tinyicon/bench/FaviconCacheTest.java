@@ -0,0 +1,139 @@
+package org.qteam.tinyicon.bench;
+
+import java.util.concurrent.atomic.*;
+import com.sun.net.httpserver.*;
+import java.time.format.*;
+import org.qteam.tinyicon.*;
+import org.junit.*;
+import java.time.*;
+import java.net.*;
+
+import static org.junit.Assert.*;
+
+/**
+	Checks the freshness rules of {@link FaviconCache} against a local stub HTTP server: each case loads the same favicon twice
+	and counts the requests (and the conditional ones) made by the cache.
+*/
+public class FaviconCacheTest
+{
+	private final static byte ICO [] = SyntheticIcons.icon (1, SyntheticIcons.Entry.bitmap (32, 16, 16, SyntheticIcons.Mask.MIXED));
+	private final static String ETAG = "\"v1\"";
+
+	private HttpServer server;
+	private String base;
+
+	private final AtomicInteger requests = new AtomicInteger ();
+	private final AtomicInteger conditional = new AtomicInteger ();
+
+	// The caching headers of the next responses
+	private volatile String cache_control;
+	private volatile String expires;
+
+	@Before
+	public void start () throws Exception
+	{
+		server = HttpServer.create (new InetSocketAddress ("127.0.0.1", 0), 0);
+		server.createContext
+		(
+			"/",
+			(x) ->
+			{
+				requests.incrementAndGet ();
+
+				final Headers h = x.getResponseHeaders ();
+
+				h.set ("ETag", ETAG);
+
+				if (cache_control != null)
+					h.set ("Cache-Control", cache_control);
+
+				if (expires != null)
+					h.set ("Expires", expires);
+
+				if (ETAG.equals (x.getRequestHeaders ().getFirst ("If-None-Match")))
+				{
+					conditional.incrementAndGet ();
+					x.sendResponseHeaders (304, -1);
+				}
+				else
+				{
+					x.sendResponseHeaders (200, ICO.length);
+					x.getResponseBody ().write (ICO);
+				}
+
+				x.close ();
+			}
+		);
+		server.start ();
+
+		base = "http://127.0.0.1:" + server.getAddress ().getPort () + "/host";
+	}
+
+	@After
+	public void stop ()
+	{
+		server.stop (0);
+	}
+
+	// Load twice and check the number of requests and of conditional requests
+	private void check (String cache_control, String expires, int num_requests, int num_conditional) throws Exception
+	{
+		this.cache_control = cache_control;
+		this.expires       = expires;
+
+		final FaviconCache cache = new FaviconCache (new FaviconLoader (), 16, 0, 0);
+
+		assertEquals (1, cache.load (base).getNumOfIcons ());
+		assertEquals (1, cache.load (base).getNumOfIcons ());
+
+		assertEquals (cache_control + " (requests)", num_requests, requests.get ());
+		assertEquals (cache_control + " (conditional requests)", num_conditional, conditional.get ());
+	}
+
+	private static String inOneHour ()
+	{
+		return (DateTimeFormatter.RFC_1123_DATE_TIME.format (ZonedDateTime.now (ZoneOffset.UTC).plusHours (1)));
+	}
+
+	@Test
+	public void maxAge () throws Exception
+	{
+		check ("public, max-age=3600", null, 1, 0);
+	}
+
+	@Test
+	public void noStoreBeforeMaxAge () throws Exception
+	{
+		check ("no-cache, no-store, max-age=0", null, 2, 0);
+	}
+
+	@Test
+	public void noStoreAfterMaxAge () throws Exception
+	{
+		check ("max-age=3600, no-store", null, 2, 0);
+	}
+
+	@Test
+	public void noCacheAfterMaxAge () throws Exception
+	{
+		check ("max-age=3600, no-cache", null, 2, 1);
+	}
+
+	@Test
+	public void maxAgeOverExpires () throws Exception
+	{
+		check ("max-age=0", inOneHour (), 2, 1);
+	}
+
+	@Test
+	public void expires () throws Exception
+	{
+		check (null, inOneHour (), 1, 0);
+	}
+
+	@Test
+	public void noHeaders () throws Exception
+	{
+		check (null, null, 2, 1);
+	}
+}
@@ -0,0 +1,97 @@
+package org.qteam.tinyicon.bench;
+
+import com.sun.net.httpserver.*;
+import java.util.concurrent.*;
+import org.qteam.tinyicon.*;
+import org.junit.rules.*;
+import java.nio.file.*;
+import org.junit.*;
+import java.net.*;
+
+import static org.junit.Assert.*;
+
+/**
+	Checks {@link FaviconStore} against a local stub HTTP server.
+*/
+public class FaviconStoreTest
+{
+	private final static byte ICO [] = SyntheticIcons.icon (1, SyntheticIcons.Entry.bitmap (32, 32, 32, SyntheticIcons.Mask.MIXED));
+
+	@Rule
+	public final TemporaryFolder tmp = new TemporaryFolder ();
+
+	private HttpServer server;
+	private String base;
+
+	// Both requests are answered only when both have arrived, so both loads miss the store
+	private final CountDownLatch arrived = new CountDownLatch (2);
+
+	@Before
+	public void start () throws Exception
+	{
+		server = HttpServer.create (new InetSocketAddress ("127.0.0.1", 0), 0);
+		server.setExecutor (Executors.newCachedThreadPool ());
+		server.createContext
+		(
+			"/",
+			(x) ->
+			{
+				arrived.countDown ();
+
+				try
+				{
+					arrived.await (10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread ().interrupt ();
+				}
+
+				x.sendResponseHeaders (200, ICO.length);
+				x.getResponseBody ().write (ICO);
+				x.close ();
+			}
+		);
+		server.start ();
+
+		base = "http://127.0.0.1:" + server.getAddress ().getPort () + "/host";
+	}
+
+	@After
+	public void stop ()
+	{
+		server.stop (0);
+	}
+
+	@Test
+	public void sameAddressStoredTwice () throws Exception
+	{
+		final Path dir = tmp.getRoot ().toPath ();
+		final FaviconStore store = new FaviconStore (dir, 1 << 20, new FaviconLoader ());
+		final ExecutorService pool = Executors.newFixedThreadPool (2);
+
+		try
+		{
+			final Future <TinyIcon> a = pool.submit (() -> store.load (base));
+			final Future <TinyIcon> b = pool.submit (() -> store.load (base));
+
+			assertEquals (1, a.get (20, TimeUnit.SECONDS).getNumOfIcons ());
+			assertEquals (1, b.get (20, TimeUnit.SECONDS).getNumOfIcons ());
+		}
+		finally
+		{
+			pool.shutdownNow ();
+		}
+
+		assertEquals (1, store.size ());
+		assertEquals (ICO.length, store.getStoredBytes ());
+		assertEquals (1, store.load (base).getNumOfIcons ());
+
+		// The file is still there after reopening
+		final FaviconStore reopened = new FaviconStore (dir, 1 << 20, new FaviconLoader ());
+
+		assertTrue (reopened.contains (base));
+		assertEquals (ICO.length, reopened.getStoredBytes ());
+		assertEquals (1, reopened.load (base).getNumOfIcons ());
+	}
+}
@@ -0,0 +1,62 @@
+package org.qteam.tinyicon;
+
+import java.awt.image.*;
+
+/**
+	A view of {@code ARGB} pixels (not premultiplied) stored in an {@code int array}, row by row from the top.<br>
+	The pixels of {@link BufferedImage#TYPE_INT_ARGB TYPE_INT_ARGB} images are used in place; other images are converted.
+*/
+final class ArgbPixels
+{
+	/** The pixels. */
+	final int data [];
+
+	/** The offset of the first pixel (top left). */
+	final int ofs;
+
+	/** The distance between two rows. */
+	final int scan;
+
+	/** The width of the image. */
+	final int width;
+
+	/** The height of the image. */
+	final int height;
+
+	// Constructor
+	ArgbPixels (int data [], int ofs, int scan, int width, int height)
+	{
+		if ((width <= 0) || (height <= 0) || (scan < width) || (ofs < 0) || (ofs + (long) scan * (height - 1) + width > data.length))
+			throw new IllegalArgumentException ("Invalid pixel layout: " + width + "x" + height + " (ofs = " + ofs + ", scan = " + scan + ")");
+
+		this.data   = data;
+		this.ofs    = ofs;
+		this.scan   = scan;
+		this.width  = width;
+		this.height = height;
+	}
+
+	/**
+		Returns the pixels of the given image.
+		@param img The image.
+		@return the pixels (in place for {@link BufferedImage#TYPE_INT_ARGB TYPE_INT_ARGB} images).
+	*/
+	static ArgbPixels of (BufferedImage img)
+	{
+		final int width  = img.getWidth ();
+		final int height = img.getHeight ();
+
+		final WritableRaster raster = img.getRaster ();
+
+		if ((img.getType () == BufferedImage.TYPE_INT_ARGB) && (raster.getSampleModel () instanceof SinglePixelPackedSampleModel))
+		{
+			final DataBufferInt db = (DataBufferInt) raster.getDataBuffer ();
+			final int scan = ((SinglePixelPackedSampleModel) raster.getSampleModel ()).getScanlineStride ();
+			final int ofs  = db.getOffset () - raster.getSampleModelTranslateY () * scan - raster.getSampleModelTranslateX ();
+
+			return (new ArgbPixels (db.getData (), ofs, scan, width, height));
+		}
+
+		return (new ArgbPixels (img.getRGB (0, 0, width, height, null, 0, width), 0, width, width, height));
+	}
+}
@@ -0,0 +1,55 @@
+package org.qteam.tinyicon;
+
+import java.nio.*;
+import java.io.*;
+
+/**
+	A simple {@link InputStream} that reads the remaining bytes of a {@link ByteBuffer}.<br>
+	It is used to feed {@link javax.imageio.ImageIO ImageIO} with compressed images without copying them to the heap first.
+*/
+final class ByteBufferInputStream extends InputStream
+{
+	private final ByteBuffer buf;
+
+	// Constructor (The position of 'buf' is not changed)
+	ByteBufferInputStream (ByteBuffer buf)
+	{
+		this.buf = buf.duplicate ();
+	}
+
+	@Override
+	public int read ()
+	{
+		return (buf.hasRemaining () ? (buf.get () & 0xFF) : -1);
+	}
+
+	@Override
+	public int read (byte dest [], int ofs, int len)
+	{
+		if (len == 0)
+			return (0);
+
+		if (!buf.hasRemaining ())
+			return (-1);
+
+		final int n = Math.min (len, buf.remaining ());
+		buf.get (dest, ofs, n);
+
+		return (n);
+	}
+
+	@Override
+	public long skip (long n)
+	{
+		final int k = (int) Math.max (0, Math.min (n, buf.remaining ()));
+		buf.position (buf.position () + k);
+
+		return (k);
+	}
+
+	@Override
+	public int available ()
+	{
+		return (buf.remaining ());
+	}
+}
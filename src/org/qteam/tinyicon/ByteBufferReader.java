@@ -0,0 +1,53 @@
+package org.qteam.tinyicon;
+
+import java.nio.*;
+
+/** The {@link IconReader} implementation used for {@code byte arrays} and heap, direct or memory-mapped buffers. */
+final class ByteBufferReader implements IconReader
+{
+	private final ByteBuffer buf;
+
+	// Constructor ('buf' must start at index 0)
+	ByteBufferReader (ByteBuffer buf)
+	{
+		this.buf = buf.order (ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public int length ()
+	{
+		return (buf.limit ());
+	}
+
+	@Override
+	public int read_byte (int ofs)
+	{
+		return (IconUtils.read_byte (buf, ofs));
+	}
+
+	@Override
+	public int read_word_le (int ofs)
+	{
+		return (IconUtils.read_word_le (buf, ofs));
+	}
+
+	@Override
+	public int read_dword_le (int ofs)
+	{
+		return (IconUtils.read_dword_le (buf, ofs));
+	}
+
+	@Override
+	public ByteBuffer slice (int ofs, int len)
+	{
+		if ((ofs < 0) || (len < 0) || (ofs > buf.limit () - len))
+			throw new IndexOutOfBoundsException ("ofs = " + ofs + ", len = " + len);
+
+		final ByteBuffer dup = buf.duplicate ();
+
+		dup.limit (ofs + len);
+		dup.position (ofs);
+
+		return (dup.slice ().order (ByteOrder.LITTLE_ENDIAN));
+	}
+}
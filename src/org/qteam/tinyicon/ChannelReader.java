@@ -0,0 +1,192 @@
+package org.qteam.tinyicon;
+
+import java.nio.channels.*;
+import java.util.*;
+import java.nio.*;
+import java.io.*;
+
+/**
+	The {@link IconReader} implementation used for {@link SeekableByteChannel channels}.<br>
+	Nothing is read in advance: every access loads only the region around the requested offset.
+	Small reads (e.g. headers and palettes) load a window of {@code WINDOW_SIZE} bytes, which is cached, while {@link #slice slice} and
+	{@link #prefetch prefetch} load exactly the requested range (e.g. a whole entry) with a single positioned read; only the last
+	of these ranges is kept, so the reader never ends up holding the whole file.
+
+	<p>I/O errors are reported as {@link UncheckedIOException} because the {@link IconReader} methods can't throw checked exceptions.
+*/
+final class ChannelReader implements IconReader
+{
+	// A BITMAPINFOHEADER (40 bytes) plus a full 256 colors palette
+	private final static int WINDOW_SIZE = 40 + (256 << 2);
+
+	private final SeekableByteChannel channel;
+	private final int length;
+
+	// Loaded windows (key = start offset)
+	private final TreeMap <Integer, ByteBuffer> regions = new TreeMap ();
+
+	// Last range loaded by 'slice' or 'prefetch' (not cached in 'regions')
+	private int span_ofs;
+	private ByteBuffer span;
+
+	// Last region hit (Most reads fall in the same region)
+	private int last_ofs;
+	private ByteBuffer last;
+
+	// Constructor
+	ChannelReader (SeekableByteChannel channel) throws IOException
+	{
+		final long size = channel.size ();
+
+		if (size > Integer.MAX_VALUE)
+			throw new IOException ("Channel too large: " + size + " bytes");
+
+		this.channel = channel;
+		this.length  = (int) size;
+	}
+
+	/**
+		Returns the channel read by this reader.
+		@return the channel.
+	*/
+	SeekableByteChannel channel ()
+	{
+		return (channel);
+	}
+
+	@Override
+	public int length ()
+	{
+		return (length);
+	}
+
+	@Override
+	public synchronized int read_byte (int ofs)
+	{
+		final ByteBuffer r = region (ofs, 1);
+		return (IconUtils.read_byte (r, ofs - last_ofs));
+	}
+
+	@Override
+	public synchronized int read_word_le (int ofs)
+	{
+		final ByteBuffer r = region (ofs, 2);
+		return (IconUtils.read_word_le (r, ofs - last_ofs));
+	}
+
+	@Override
+	public synchronized int read_dword_le (int ofs)
+	{
+		final ByteBuffer r = region (ofs, 4);
+		return (IconUtils.read_dword_le (r, ofs - last_ofs));
+	}
+
+	@Override
+	public synchronized ByteBuffer slice (int ofs, int len)
+	{
+		checkRange (ofs, len);
+
+		final ByteBuffer r = find (ofs, len);
+		final ByteBuffer src = (r != null) ? r : load (ofs, len, false);
+		final ByteBuffer dup = src.duplicate ();
+		final int rofs = ofs - last_ofs;
+
+		dup.limit (rofs + len);
+		dup.position (rofs);
+
+		return (dup.slice ().order (ByteOrder.LITTLE_ENDIAN));
+	}
+
+	@Override
+	public synchronized void prefetch (int ofs, int len)
+	{
+		// Clip to the channel size (Some icons have a wrong 'bytesInRes')
+		len = Math.min (len, length - ofs);
+
+		if ((ofs >= 0) && (len > 0) && (find (ofs, len) == null))
+			load (ofs, len, false);
+	}
+
+	// Get a loaded region which contains [ofs, ofs + len) or load a new window
+	private ByteBuffer region (int ofs, int len)
+	{
+		checkRange (ofs, len);
+
+		final ByteBuffer r = find (ofs, len);
+		return ((r != null) ? r : load (ofs, Math.max (len, Math.min (WINDOW_SIZE, length - ofs)), true));
+	}
+
+	// Find a loaded region which contains [ofs, ofs + len); 'last' and 'last_ofs' are updated on success
+	private ByteBuffer find (int ofs, int len)
+	{
+		if ((last != null) && (ofs >= last_ofs) && ((ofs - last_ofs) <= last.limit () - len))
+			return (last);
+
+		if ((span != null) && (ofs >= span_ofs) && ((ofs - span_ofs) <= span.limit () - len))
+		{
+			last_ofs = span_ofs;
+			last     = span;
+
+			return (last);
+		}
+
+		final Map.Entry <Integer, ByteBuffer> e = regions.floorEntry (ofs);
+
+		if ((e == null) || ((ofs - e.getKey ()) > e.getValue ().limit () - len))
+			return (null);
+
+		last_ofs = e.getKey ();
+		last     = e.getValue ();
+
+		return (last);
+	}
+
+	// Read [ofs, ofs + len) from the channel, as a cached window or as the (only) kept range; 'last' and 'last_ofs' are updated
+	private ByteBuffer load (int ofs, int len, boolean window)
+	{
+		final ByteBuffer r = ByteBuffer.allocate (len).order (ByteOrder.LITTLE_ENDIAN);
+
+		try
+		{
+			channel.position (ofs);
+
+			while (r.hasRemaining ())
+			{
+				if (channel.read (r) < 0)
+					throw new EOFException ("Unexpected end of channel at offset " + (ofs + r.position ()));
+			}
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException (e);
+		}
+
+		r.flip ();
+
+		if (window)
+		{
+			// Keep the biggest window for each start offset
+			final ByteBuffer old = regions.get (ofs);
+
+			if ((old == null) || (old.limit () < len))
+				regions.put (ofs, r);
+		}
+		else
+		{
+			// Replace the previous range (slices already returned stay valid)
+			span_ofs = ofs;
+			span     = r;
+		}
+
+		last_ofs = ofs;
+		last     = r;
+
+		return (r);
+	}
+
+	private void checkRange (int ofs, int len)
+	{
+		if ((ofs < 0) || (len < 0) || (ofs > length - len))
+			throw new IndexOutOfBoundsException ("ofs = " + ofs + ", len = " + len);
+	}
+}
@@ -0,0 +1,15 @@
+package org.qteam.tinyicon;
+
+/**
+	Component order enum.<br>
+	These {@code constants} select the byte order of the pixels (4 bytes each, not premultiplied) written by
+	{@link Icon#decodeTo(java.nio.ByteBuffer, int, int, ComponentOrder, DecoderContext) Icon.decodeTo} into a {@link java.nio.ByteBuffer ByteBuffer}.
+*/
+public enum ComponentOrder
+{
+	/** Red, green, blue, alpha (e.g. {@code GL_RGBA}). */
+	RGBA,
+
+	/** Blue, green, red, alpha (e.g. {@code DXGI_FORMAT_B8G8R8A8} or a little-endian {@code ARGB int}). */
+	BGRA
+}
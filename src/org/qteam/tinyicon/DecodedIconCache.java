@@ -0,0 +1,184 @@
+package org.qteam.tinyicon;
+
+import java.awt.image.*;
+import java.util.*;
+
+/**
+	A shared, thread-safe cache of decoded images.<br>
+	Images are keyed by the content hash ({@code SHA-256}) of the icon data and by the index of the entry inside the icon, so the same
+	icon loaded many times (even from different sources) is decoded only once.
+	The cache size is measured in pixel bytes ({@code width * height * 4}) rather than in entries; when the budget is exceeded, the least
+	recently used images are evicted.
+
+	<p>A cache is enabled per {@link TinyIcon} (See {@link TinyIcon#setDecodedIconCache setDecodedIconCache}), but the same cache is
+	meant to be shared by all of them:
+	<blockquote>
+		{@code final static DecodedIconCache CACHE = new DecodedIconCache (64 << 20);}<br>
+		...<br>
+		{@code final TinyIcon ti = new TinyIcon (data);}<br>
+		{@code ti.setDecodedIconCache (CACHE);}<br>
+		{@code final BufferedImage img = ti.getImage (0);}
+	</blockquote>
+
+	<p>Note that cached images are shared: they must not be modified.
+*/
+public final class DecodedIconCache
+{
+	private final long max_bytes;
+
+	// Access-ordered map (LRU)
+	private final LinkedHashMap <String, BufferedImage> images = new LinkedHashMap (16, 0.75f, true);
+
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+		Constructs a new {@code DecodedIconCache}.
+
+		@param max_bytes The maximum number of pixel bytes ({@code width * height * 4} for each image) kept in the cache.
+		@throws IllegalArgumentException if {@code max_bytes} {@literal <=} 0.
+	*/
+	public DecodedIconCache (long max_bytes)
+	{
+		if (max_bytes <= 0)
+			throw new IllegalArgumentException ("Invalid cache size: " + max_bytes);
+
+		this.max_bytes = max_bytes;
+	}
+
+	/**
+		Returns the cached image of the given entry (counting a hit or a miss).
+
+		@param hash  The content hash of the icon data.
+		@param index  The index of the entry inside the icon.
+		@param format The pixel format of the image.
+		@return the cached image or {@code null}.
+	*/
+	synchronized BufferedImage get (String hash, int index, PixelFormat format)
+	{
+		final BufferedImage img = images.get (key (hash, index, format));
+
+		if (img != null)
+			hits ++;
+		else
+			misses ++;
+
+		return (img);
+	}
+
+	/**
+		Adds the image of the given entry, evicting the least recently used images if necessary.<br>
+		Images bigger than the whole cache are not added.
+
+		@param hash  The content hash of the icon data.
+		@param index  The index of the entry inside the icon.
+		@param format The pixel format of the image.
+		@param img    The decoded image.
+	*/
+	synchronized void put (String hash, int index, PixelFormat format, BufferedImage img)
+	{
+		final long weight = weight (img);
+
+		if (weight > max_bytes)
+			return;
+
+		final BufferedImage old = images.put (key (hash, index, format), img);
+
+		if (old != null)
+			bytes -= weight (old);
+
+		bytes += weight;
+
+		final Iterator <BufferedImage> it = images.values ().iterator ();
+
+		while (bytes > max_bytes)
+		{
+			bytes -= weight (it.next ());
+			it.remove ();
+			evictions ++;
+		}
+	}
+
+	/** Removes all cached images (counters are not reset). */
+	public synchronized void clear ()
+	{
+		images.clear ();
+		bytes = 0;
+	}
+
+	/**
+		Returns the number of cached images.
+		@return the number of cached images.
+	*/
+	public synchronized int size ()
+	{
+		return (images.size ());
+	}
+
+	/**
+		Returns the pixel bytes currently used by the cached images.
+		@return the sum of {@code width * height * 4} of all cached images.
+	*/
+	public synchronized long getBytes ()
+	{
+		return (bytes);
+	}
+
+	/**
+		Returns how many times an image was found in the cache.
+		@return the number of hits.
+	*/
+	public synchronized long getHits ()
+	{
+		return (hits);
+	}
+
+	/**
+		Returns how many times an image was not found in the cache (and it had to be decoded).
+		@return the number of misses.
+	*/
+	public synchronized long getMisses ()
+	{
+		return (misses);
+	}
+
+	/**
+		Returns how many images were evicted to stay within the budget.
+		@return the number of evictions.
+	*/
+	public synchronized long getEvictions ()
+	{
+		return (evictions);
+	}
+
+	/**
+		Returns a string summarizing the state of this {@code DecodedIconCache}.
+		@return a summary string.
+	*/
+	@Override
+	public synchronized String toString ()
+	{
+		final StringBuilder sb = new StringBuilder ();
+
+		sb.append ("images    = ").append (images.size ()).append ("\n");
+		sb.append ("bytes     = ").append (bytes         ).append ("\n");
+		sb.append ("max_bytes = ").append (max_bytes     ).append ("\n");
+		sb.append ("hits      = ").append (hits          ).append ("\n");
+		sb.append ("misses    = ").append (misses        ).append ("\n");
+		sb.append ("evictions = ").append (evictions     ).append ("\n");
+
+		return (sb.toString ());
+	}
+
+	private static String key (String hash, int index, PixelFormat format)
+	{
+		return (hash + '#' + index + '#' + format);
+	}
+
+	private static long weight (BufferedImage img)
+	{
+		return ((long) img.getWidth () * img.getHeight () * 4);
+	}
+}
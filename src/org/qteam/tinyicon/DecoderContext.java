@@ -0,0 +1,146 @@
+package org.qteam.tinyicon;
+
+import java.awt.image.*;
+
+/**
+	A reusable set of buffers for decoding many images on the same thread (e.g. in a long-running decoding worker).<br>
+	A {@code DecoderContext} keeps the output image and the row buffers of the last decoded bitmap, so decoding images with the same
+	size again (see {@link Icon#getImage(DecoderContext) getImage (DecoderContext)}) allocates almost nothing: the pixels are written
+	into the same image every time.
+
+	<p>Consequently, an image returned through a context is valid only until the next decoding with the same context: copy it
+	(or use {@link Icon#getImage() getImage ()}) to keep it. Compressed ({@code png}) images are decoded via {@link javax.imageio.ImageIO ImageIO},
+	which always allocates a new image.
+
+	<p>A {@code DecoderContext} is not thread-safe: use one context per thread.
+
+	<p>Example:
+	<blockquote>
+		{@code final DecoderContext ctx = new DecoderContext ();}<br>
+		{@code for (Path p : paths)}<br>
+		&nbsp;&nbsp;&nbsp;&nbsp;{@code consume (new TinyIcon (p).getIcon (0).getImage (ctx));}
+	</blockquote>
+*/
+public final class DecoderContext
+{
+	private final PixelFormat format;
+	private BufferedImage image;
+
+	private byte row [];
+	private byte mask_row [];
+	private int argb_row [];
+	private byte out_row [];
+
+	/**
+		Constructs a new (empty) {@code DecoderContext} that decodes {@link PixelFormat#ARGB ARGB} images; buffers are allocated on first use.
+	*/
+	public DecoderContext ()
+	{
+		this (PixelFormat.ARGB);
+	}
+
+	/**
+		Constructs a new (empty) {@code DecoderContext} that decodes images in the given format; buffers are allocated on first use.
+		@param format The pixel format of the decoded images.
+		@throws IllegalArgumentException if {@code format} is {@code null}.
+	*/
+	public DecoderContext (PixelFormat format)
+	{
+		if (format == null)
+			throw new IllegalArgumentException ("Invalid pixel format");
+
+		this.format = format;
+	}
+
+	/**
+		Returns the pixel format of the images decoded with this context.
+		@return the {@link PixelFormat}.
+	*/
+	public PixelFormat getPixelFormat ()
+	{
+		return (format);
+	}
+
+	/**
+		Releases all buffers (e.g. after decoding a very large image); they are allocated again on next use.
+	*/
+	public void release ()
+	{
+		image    = null;
+		row      = null;
+		mask_row = null;
+		argb_row = null;
+		out_row  = null;
+	}
+
+	/**
+		Returns an image with the given size and type, reusing the previous one when the size and type are the same.<br>
+		The content of a reused image is not cleared.
+
+		@param width  The width of the image.
+		@param height The height of the image.
+		@param type   The {@link BufferedImage} type.
+		@return the image.
+	*/
+	BufferedImage image (int width, int height, int type)
+	{
+		BufferedImage img = image;
+
+		if ((img == null) || (img.getWidth () != width) || (img.getHeight () != height) || (img.getType () != type))
+			image = img = new BufferedImage (width, height, type);
+
+		return (img);
+	}
+
+	/**
+		Returns a buffer for (at least) {@code len} bytes of pixel data.
+		@param len The needed length.
+		@return the buffer.
+	*/
+	byte [] row (int len)
+	{
+		if ((row == null) || (row.length < len))
+			row = new byte [len];
+
+		return (row);
+	}
+
+	/**
+		Returns a buffer for (at least) {@code len} bytes of mask data.
+		@param len The needed length.
+		@return the buffer.
+	*/
+	byte [] maskRow (int len)
+	{
+		if ((mask_row == null) || (mask_row.length < len))
+			mask_row = new byte [len];
+
+		return (mask_row);
+	}
+
+	/**
+		Returns a buffer for (at least) {@code len} {@code ARGB} pixels.
+		@param len The needed length.
+		@return the buffer.
+	*/
+	int [] argbRow (int len)
+	{
+		if ((argb_row == null) || (argb_row.length < len))
+			argb_row = new int [len];
+
+		return (argb_row);
+	}
+
+	/**
+		Returns a buffer for (at least) {@code len} bytes of converted pixels.
+		@param len The needed length.
+		@return the buffer.
+	*/
+	byte [] outRow (int len)
+	{
+		if ((out_row == null) || (out_row.length < len))
+			out_row = new byte [len];
+
+		return (out_row);
+	}
+}
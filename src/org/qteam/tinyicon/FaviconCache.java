@@ -0,0 +1,284 @@
+package org.qteam.tinyicon;
+
+import java.util.*;
+import java.net.*;
+import java.io.*;
+
+/**
+	An HTTP-aware cache of {@code favicons}, placed in front of a {@link FaviconLoader}.<br>
+	The raw favicon data is kept in memory together with its validators ({@code ETag} and {@code Last-Modified}) and its freshness
+	lifetime ({@code Cache-Control: max-age}, {@code no-cache}, {@code no-store} and {@code Expires} are honoured, whatever the order of the
+	directives: {@code no-store} wins over {@code no-cache}, which wins over {@code max-age}; {@code Expires} is used only without {@code max-age}):
+
+	<ul>
+		<li>a fresh favicon is served from memory, without any request.</li>
+		<li>a stale favicon is revalidated with a conditional request; a {@code 304 Not Modified} response costs no body transfer.</li>
+		<li>{@code 404} responses and favicons that can't be parsed are remembered for a configurable time (negative caching),
+		so dead hosts are not hit again on every request.</li>
+	</ul>
+
+	<p>A new {@link TinyIcon} is returned on every call (it is built from the cached data, which is not copied), so callers can sort it freely.
+	This class is thread-safe; when the maximum number of entries is reached the least recently used one is evicted.
+
+	<p>Example:
+	<blockquote>
+		{@code final FaviconCache cache = new FaviconCache ();}<br>
+		{@code final TinyIcon ti = cache.load ("https://www.github.com");}
+	</blockquote>
+*/
+public final class FaviconCache
+{
+	/** Default maximum number of cached hosts. */
+	public final static int DEFAULT_MAX_ENTRIES = 1024;
+
+	/** Default freshness lifetime (in milliseconds) of responses without explicit caching headers (0 = always revalidate). */
+	public final static long DEFAULT_TTL = 0;
+
+	/** Default lifetime (in milliseconds) of negative entries (404 responses and invalid icons). */
+	public final static long DEFAULT_NEGATIVE_TTL = 10 * 60 * 1000;
+
+	private final FaviconLoader loader;
+	private final long default_ttl;
+	private final long negative_ttl;
+
+	// Access-ordered map (LRU)
+	private final LinkedHashMap <String, Item> entries;
+
+	// A cached favicon (positive or negative)
+	private static final class Item
+	{
+		final IconReader body;
+		final Exception error;
+		final String etag;
+		final String last_modified;
+		final long fresh_until;
+
+		Item (IconReader body, Exception error, String etag, String last_modified, long fresh_until)
+		{
+			this.body          = body;
+			this.error         = error;
+			this.etag          = etag;
+			this.last_modified = last_modified;
+			this.fresh_until   = fresh_until;
+		}
+	}
+
+	/**
+		Constructs a new {@code FaviconCache} with a default {@link FaviconLoader} and the default limits.
+	*/
+	public FaviconCache ()
+	{
+		this (new FaviconLoader (), DEFAULT_MAX_ENTRIES, DEFAULT_TTL, DEFAULT_NEGATIVE_TTL);
+	}
+
+	/**
+		Constructs a new {@code FaviconCache}.
+
+		@param loader       The {@link FaviconLoader} used to download and revalidate favicons.
+		@param max_entries  The maximum number of cached hosts.
+		@param default_ttl  The freshness lifetime (in milliseconds) of responses without explicit caching headers (0 = always revalidate).
+		@param negative_ttl The lifetime (in milliseconds) of negative entries (404 responses and invalid icons; 0 = no negative caching).
+		@throws IllegalArgumentException if {@code max_entries} {@literal <=} 0 or a lifetime is negative.
+	*/
+	public FaviconCache (FaviconLoader loader, int max_entries, long default_ttl, long negative_ttl)
+	{
+		if ((max_entries <= 0) || (default_ttl < 0) || (negative_ttl < 0))
+			throw new IllegalArgumentException ("Invalid cache limits");
+
+		this.loader       = loader;
+		this.default_ttl  = default_ttl;
+		this.negative_ttl = negative_ttl;
+
+		entries = new LinkedHashMap <String, Item> (16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry (Map.Entry <String, Item> eldest)
+			{
+				return (size () > max_entries);
+			}
+		};
+	}
+
+	/**
+		Loads and processes the {@code favicon} of the given address, using the cached copy when possible.<br>
+		A '{@code favicon.ico}' is automatically appended to the address.
+
+		@param url The remote address (e.g. {@code https://www.github.com}).
+		@return a new {@link TinyIcon}.
+
+		@throws IOException              if an I/O exception occurs (e.g. a non existent {@link URL}, a timeout or an expired deadline);
+		                                 a cached {@code 404} is reported as {@link FileNotFoundException}.
+		@throws InvalidIconException     if the favicon is an invalid icon (possibly cached).
+		@throws InvalidIconDataException if the favicon has wrong data inside (possibly cached).
+	*/
+	public TinyIcon load (String url) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		final long now = System.currentTimeMillis ();
+		final Item cached = get (url);
+
+		// Fresh entry: no request at all
+		if ((cached != null) && (now < cached.fresh_until))
+			return (build (cached));
+
+		// Negative entries have no validators: just retry
+		final boolean revalidate = (cached != null) && (cached.body != null) && ((cached.etag != null) || (cached.last_modified != null));
+		final URL u = FaviconLoader.faviconUrl (url);
+
+		final FaviconResponse r = revalidate ? loader.fetch (u, cached.etag, cached.last_modified) : loader.fetch (u, null, null);
+		final long fresh_until = freshUntil (r, now);
+
+		switch (r.code)
+		{
+			case HttpURLConnection.HTTP_NOT_MODIFIED:
+			{
+				if (!revalidate)
+					throw new IOException ("Unexpected HTTP response code: 304 for URL: " + u);
+
+				// Keep the old validators if the server didn't send new ones
+				final String etag          = (r.etag          != null) ? r.etag          : cached.etag;
+				final String last_modified = (r.last_modified != null) ? r.last_modified : cached.last_modified;
+
+				return (build (store (url, new Item (cached.body, null, etag, last_modified, fresh_until))));
+			}
+
+			case HttpURLConnection.HTTP_NOT_FOUND:
+				return (build (store (url, new Item (null, new FileNotFoundException (u.toString ()), null, null, now + negative_ttl))));
+
+			default:
+			{
+				// Check that the new favicon can be parsed
+				try
+				{
+					final TinyIcon ti = new TinyIcon (r.body, FaviconLoader.FAVICON_NAME);
+					store (url, new Item (r.body, null, r.etag, r.last_modified, fresh_until));
+
+					return (ti);
+				}
+				catch (InvalidIconException | InvalidIconDataException e)
+				{
+					return (build (store (url, new Item (null, e, null, null, now + negative_ttl))));
+				}
+			}
+		}
+	}
+
+	/**
+		Removes the cached copy (positive or negative) of the given address.
+		@param url The remote address (e.g. {@code https://www.github.com}).
+	*/
+	public void invalidate (String url)
+	{
+		synchronized (entries)
+		{
+			entries.remove (url);
+		}
+	}
+
+	/** Removes all cached favicons. */
+	public void clear ()
+	{
+		synchronized (entries)
+		{
+			entries.clear ();
+		}
+	}
+
+	/**
+		Returns the number of cached hosts (both positive and negative entries).
+		@return the number of cached hosts.
+	*/
+	public int size ()
+	{
+		synchronized (entries)
+		{
+			return (entries.size ());
+		}
+	}
+
+	private Item get (String url)
+	{
+		synchronized (entries)
+		{
+			return (entries.get (url));
+		}
+	}
+
+	// Store the entry (unless it must not be stored) and return it
+	private Item store (String url, Item e)
+	{
+		synchronized (entries)
+		{
+			if (e.fresh_until < 0)
+				entries.remove (url);
+			else
+				entries.put (url, e);
+		}
+
+		return (e);
+	}
+
+	// Build a new TinyIcon from a positive entry or throw the cached error
+	private static TinyIcon build (Item e) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		if (e.error instanceof IOException)
+			throw (IOException) e.error;
+
+		if (e.error instanceof InvalidIconException)
+			throw (InvalidIconException) e.error;
+
+		if (e.error instanceof InvalidIconDataException)
+			throw (InvalidIconDataException) e.error;
+
+		return (new TinyIcon (e.body, FaviconLoader.FAVICON_NAME));
+	}
+
+	// Get the expiration time of a response (-1 means 'don't store')
+	private long freshUntil (FaviconResponse r, long now)
+	{
+		boolean no_store = false;
+		boolean no_cache = false;
+		long max_age = -1;
+
+		// All the directives are read first, so their order doesn't matter
+		if (r.cache_control != null)
+		{
+			for (String token : r.cache_control.toLowerCase ().split (","))
+			{
+				token = token.trim ();
+
+				if (token.equals ("no-store"))
+					no_store = true;
+				else if (token.equals ("no-cache"))
+					no_cache = true;
+				else if (token.startsWith ("max-age="))
+				{
+					try
+					{
+						max_age = Math.max (0, Long.parseLong (token.substring (8).replace ("\"", "").trim ()));
+					}
+					catch (NumberFormatException e)
+					{
+						// An invalid 'max-age' means stale
+						max_age = 0;
+					}
+				}
+			}
+		}
+
+		if (no_store)
+			return (-1);
+
+		if (no_cache)
+			return (now);
+
+		// Up to 2^31 seconds (as RFC 9111 suggests), so the time can't overflow
+		if (max_age >= 0)
+			return (now + Math.min (max_age, Integer.MAX_VALUE) * 1000);
+
+		// 'Expires' is relative to the server clock
+		if (r.expires > 0)
+			return (now + Math.max (0, r.expires - ((r.date > 0) ? r.date : now)));
+
+		return (now + default_ttl);
+	}
+}
@@ -0,0 +1,338 @@
+package org.qteam.tinyicon;
+
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+import java.net.*;
+import java.io.*;
+
+/**
+	Loads {@code favicons} from remote addresses, either synchronously or asynchronously.<br>
+	Compared to a plain {@link URLConnection}, a {@code FaviconLoader}:
+
+	<ul>
+		<li>uses a {@code connect} and a {@code read} timeout, plus an overall {@code deadline} for the whole request;
+		when the deadline expires the connection is dropped and no more data is read, so a single slow host can't pin a thread forever
+		(a blocked read is bounded by the read timeout, which never exceeds the deadline).</li>
+		<li>asks for compressed responses ({@code Accept-Encoding: gzip, deflate}) and decompresses them on the fly.</li>
+		<li>reads the body into a single buffer sized from the {@code Content-Length} header (no intermediate copies), and refuses bodies
+		larger than 16 MB once decompressed, so a hostile or misconfigured host can't exhaust the memory.</li>
+		<li>runs asynchronous requests on an {@link Executor} (by default a shared pool of daemon threads), so the caller is never blocked.</li>
+	</ul>
+
+	<p>Connections are kept alive and reused for the same host by the underlying HTTP implementation.
+	The base address can be any {@code http}, {@code https} or {@code ftp} address, including a local stub server (e.g. {@code http://127.0.0.1:8080}).
+
+	<p>Example:
+	<blockquote>
+		{@code final FaviconLoader loader = new FaviconLoader ();}<br>
+		{@code loader.loadAsync ("https://www.github.com").thenAccept (ti -> System.out.println (ti.getNumOfIcons ()));}
+	</blockquote>
+*/
+public final class FaviconLoader
+{
+	/** The name of the icon requested to the remote host. */
+	public final static String FAVICON_NAME = "favicon.ico";
+
+	/** Default connect timeout in milliseconds. */
+	public final static int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+	/** Default read timeout in milliseconds. */
+	public final static int DEFAULT_READ_TIMEOUT = 15000;
+
+	/** Default deadline (for the whole request) in milliseconds. */
+	public final static int DEFAULT_DEADLINE = 30000;
+
+	// Some websites give HTTP 403 error without user agent...
+	private final static String USER_AGENT = "Mozilla/4.0 (compatible; MSIE 8.0; Windows NT 6.1)";
+
+	// Don't trust huge 'Content-Length' values when pre-sizing buffers
+	private final static int MAX_PRESIZE = 1 << 20;
+
+	// Bodies (after decompression) larger than this are refused
+	private final static int MAX_BODY_SIZE = 1 << 24;
+
+	private final Executor executor;
+	private final int connect_timeout;
+	private final int read_timeout;
+	private final int deadline;
+
+	// Shared daemon threads (created on first use)
+	private static final class Pools
+	{
+		static final ExecutorService IO = Executors.newCachedThreadPool (daemonFactory ("TinyIcon-loader"));
+		static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor (daemonFactory ("TinyIcon-watchdog"));
+
+		private static ThreadFactory daemonFactory (String name)
+		{
+			final AtomicInteger n = new AtomicInteger ();
+
+			return
+			(
+				(r) ->
+				{
+					final Thread t = new Thread (r, name + "-" + n.incrementAndGet ());
+					t.setDaemon (true);
+
+					return (t);
+				}
+			);
+		}
+	}
+
+	/**
+		Constructs a new {@code FaviconLoader} with the default timeouts and deadline.<br>
+		Asynchronous requests run on a shared pool of daemon threads.
+	*/
+	public FaviconLoader ()
+	{
+		this (null, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_DEADLINE);
+	}
+
+	/**
+		Constructs a new {@code FaviconLoader}.
+
+		@param executor        The {@link Executor} used for asynchronous requests or {@code null} to use a shared pool of daemon threads.
+		@param connect_timeout The connect timeout in milliseconds (0 means no timeout).
+		@param read_timeout    The read timeout (between two packets) in milliseconds (0 means no timeout).
+		@param deadline        The maximum duration of the whole request in milliseconds (0 means no deadline).
+		@throws IllegalArgumentException if a timeout or the deadline is negative.
+	*/
+	public FaviconLoader (Executor executor, int connect_timeout, int read_timeout, int deadline)
+	{
+		if ((connect_timeout < 0) || (read_timeout < 0) || (deadline < 0))
+			throw new IllegalArgumentException ("Timeouts and deadline can't be negative");
+
+		this.executor        = executor;
+		this.connect_timeout = connect_timeout;
+		this.read_timeout    = read_timeout;
+		this.deadline        = deadline;
+	}
+
+	/**
+		Loads and processes the {@code favicon} of the given address.<br>
+		A '{@code favicon.ico}' is automatically appended to the address.
+
+		@param url The remote address (e.g. {@code https://www.github.com}).
+		@return a new {@link TinyIcon}.
+
+		@throws IOException              if an I/O exception occurs (e.g. a non existent {@link URL}, a timeout or an expired deadline).
+		@throws InvalidIconException     if the favicon is an invalid icon.
+		@throws InvalidIconDataException if the favicon has wrong data inside.
+	*/
+	public TinyIcon load (String url) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		return (new TinyIcon (read (url), FAVICON_NAME));
+	}
+
+	/**
+		Loads and processes the {@code favicon} of the given address asynchronously.<br>
+		A '{@code favicon.ico}' is automatically appended to the address.<br>
+		The returned future completes exceptionally with the same exceptions thrown by {@link #load load}.
+
+		@param url The remote address (e.g. {@code https://www.github.com}).
+		@return a {@link CompletableFuture} of the new {@link TinyIcon}.
+	*/
+	public CompletableFuture <TinyIcon> loadAsync (String url)
+	{
+		return (supplyAsync (() -> load (url)));
+	}
+
+	/**
+		Reads the raw data of the {@code favicon} of the given address.<br>
+		A '{@code favicon.ico}' is automatically appended to the address.
+
+		@param url The remote address (e.g. {@code https://www.github.com}).
+		@return an {@link IconReader} over the downloaded data.
+
+		@throws IOException if an I/O exception occurs (e.g. a non existent {@link URL}, a timeout or an expired deadline).
+	*/
+	public IconReader read (String url) throws IOException
+	{
+		final URL u = faviconUrl (url);
+		final FaviconResponse r = fetch (u, null, null);
+
+		if (r.code == HttpURLConnection.HTTP_NOT_FOUND)
+			throw new FileNotFoundException (u.toString ());
+
+		return (r.body);
+	}
+
+	/**
+		Reads the raw data of the {@code favicon} of the given address asynchronously.<br>
+		The returned future completes exceptionally with the same exceptions thrown by {@link #read read}.
+
+		@param url The remote address (e.g. {@code https://www.github.com}).
+		@return a {@link CompletableFuture} of the downloaded data.
+	*/
+	public CompletableFuture <IconReader> readAsync (String url)
+	{
+		return (supplyAsync (() -> read (url)));
+	}
+
+	// Append the icon name to the address
+	static URL faviconUrl (String url) throws MalformedURLException
+	{
+		return (new URL (url + "/" + FAVICON_NAME));
+	}
+
+	/**
+		Downloads the given {@link URL} enforcing timeouts and deadline.<br>
+		When a validator ({@code etag} or {@code last_modified}) is given, a conditional request is made and a
+		{@code 304} response (without body) can be returned. A {@code 404} response is returned (without body) instead of thrown.
+
+		@param url           The {@link URL} to download.
+		@param etag          The {@code ETag} of the cached copy or {@code null}.
+		@param last_modified The {@code Last-Modified} date of the cached copy or {@code null}.
+		@return the response.
+		@throws IOException if an I/O exception occurs, the server returns an unexpected response code or the body is too large.
+	*/
+	FaviconResponse fetch (URL url, String etag, String last_modified) throws IOException
+	{
+		final URLConnection uc = url.openConnection ();
+		final AtomicBoolean expired = new AtomicBoolean ();
+
+		// A blocked read can't outlive the deadline by more than one read timeout
+		uc.setConnectTimeout (connect_timeout);
+		uc.setReadTimeout (((deadline > 0) && ((read_timeout == 0) || (read_timeout > deadline))) ? deadline : read_timeout);
+		uc.setUseCaches (false);
+		uc.addRequestProperty ("User-Agent", USER_AGENT);
+		uc.addRequestProperty ("Accept-Encoding", "gzip, deflate");
+
+		// Conditional request
+		if (etag != null)
+			uc.addRequestProperty ("If-None-Match", etag);
+
+		if (last_modified != null)
+			uc.addRequestProperty ("If-Modified-Since", last_modified);
+
+		// Drop the connection when the deadline expires
+		final ScheduledFuture <?> watchdog = ((deadline > 0) && (uc instanceof HttpURLConnection)) ?
+			Pools.WATCHDOG.schedule (() -> { expired.set (true); ((HttpURLConnection) uc).disconnect (); }, deadline, TimeUnit.MILLISECONDS) : null;
+
+		InputStream is = null;
+
+		try
+		{
+			int code = HttpURLConnection.HTTP_OK;
+
+			if (uc instanceof HttpURLConnection)
+			{
+				code = ((HttpURLConnection) uc).getResponseCode ();
+
+				if ((code != HttpURLConnection.HTTP_NOT_MODIFIED) && (code != HttpURLConnection.HTTP_NOT_FOUND) && ((code < 200) || (code >= 300)))
+					throw new IOException ("Server returned HTTP response code: " + code + " for URL: " + url);
+			}
+
+			IconReader body = null;
+
+			if ((code >= 200) && (code < 300))
+			{
+				is = decodeStream (new DeadlineInputStream (uc.getInputStream (), expired), uc.getContentEncoding ());
+
+				// Pre-size the buffer (The length is the compressed one, but it is still a good hint)
+				final long len = uc.getContentLengthLong ();
+				body = IconUtils.readFully (is, (int) Math.min (len, MAX_PRESIZE), MAX_BODY_SIZE);
+			}
+
+			return (new FaviconResponse (code, body, uc.getHeaderField ("ETag"), uc.getHeaderField ("Last-Modified"),
+				uc.getHeaderField ("Cache-Control"), uc.getExpiration (), uc.getDate ()));
+		}
+		catch (IOException e)
+		{
+			if (expired.get ())
+				throw new SocketTimeoutException ("Deadline expired (" + deadline + " ms) for URL: " + url);
+
+			throw e;
+		}
+		finally
+		{
+			if (watchdog != null)
+				watchdog.cancel (false);
+
+			IconUtils.closeInputStream (is);
+		}
+	}
+
+	// Fails every read after the deadline (even if the connection still delivers data)
+	private static final class DeadlineInputStream extends FilterInputStream
+	{
+		private final AtomicBoolean expired;
+
+		DeadlineInputStream (InputStream is, AtomicBoolean expired)
+		{
+			super (is);
+			this.expired = expired;
+		}
+
+		@Override
+		public int read () throws IOException
+		{
+			check ();
+			return (super.read ());
+		}
+
+		@Override
+		public int read (byte dest [], int ofs, int len) throws IOException
+		{
+			check ();
+			return (super.read (dest, ofs, len));
+		}
+
+		private void check () throws IOException
+		{
+			if (expired.get ())
+				throw new SocketTimeoutException ("Deadline expired");
+		}
+	}
+
+	// Decompress the response (if necessary)
+	private static InputStream decodeStream (InputStream is, String encoding) throws IOException
+	{
+		if (encoding == null)
+			return (is);
+
+		switch (encoding.trim ().toLowerCase ())
+		{
+			case "gzip":
+			case "x-gzip":
+				return (new GZIPInputStream (is));
+
+			case "deflate":
+				return (new InflaterInputStream (is));
+
+			default:
+				return (is);
+		}
+	}
+
+	// Run 'task' on the executor, completing the future with its result or exception
+	private <T> CompletableFuture <T> supplyAsync (Callable <T> task)
+	{
+		final CompletableFuture <T> cf = new CompletableFuture ();
+
+		try
+		{
+			((executor == null) ? Pools.IO : executor).execute
+			(
+				() ->
+				{
+					try
+					{
+						cf.complete (task.call ());
+					}
+					catch (Throwable e)
+					{
+						cf.completeExceptionally (e);
+					}
+				}
+			);
+		}
+		catch (RejectedExecutionException e)
+		{
+			cf.completeExceptionally (e);
+		}
+
+		return (cf);
+	}
+}
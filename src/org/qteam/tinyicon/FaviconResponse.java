@@ -0,0 +1,38 @@
+package org.qteam.tinyicon;
+
+/** The outcome of a single favicon request, as returned by {@link FaviconLoader} to {@link FaviconCache}. */
+final class FaviconResponse
+{
+	/** The response code (e.g. 200, 304 or 404). */
+	final int code;
+
+	/** The response body or {@code null} if there is no body (e.g. 304 or 404). */
+	final IconReader body;
+
+	/** The {@code ETag} header or {@code null}. */
+	final String etag;
+
+	/** The {@code Last-Modified} header or {@code null}. */
+	final String last_modified;
+
+	/** The {@code Cache-Control} header or {@code null}. */
+	final String cache_control;
+
+	/** The {@code Expires} header in milliseconds or 0 if missing. */
+	final long expires;
+
+	/** The {@code Date} header in milliseconds or 0 if missing. */
+	final long date;
+
+	// Constructor
+	FaviconResponse (int code, IconReader body, String etag, String last_modified, String cache_control, long expires, long date)
+	{
+		this.code          = code;
+		this.body          = body;
+		this.etag          = etag;
+		this.last_modified = last_modified;
+		this.cache_control = cache_control;
+		this.expires       = expires;
+		this.date          = date;
+	}
+}
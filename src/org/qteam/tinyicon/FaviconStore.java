@@ -0,0 +1,443 @@
+package org.qteam.tinyicon;
+
+import java.nio.charset.*;
+import java.nio.channels.*;
+import java.util.logging.*;
+import java.nio.file.*;
+import java.util.*;
+import java.nio.*;
+import java.io.*;
+
+/**
+	A persistent, content-addressed store of raw {@code favicon} data, so a process restart doesn't download all favicons again.<br>
+	Favicons are keyed by their address and stored once per content ({@code SHA-256}), so identical favicons served by different
+	hosts share the same file. Stored favicons are loaded with a memory-mapped {@link TinyIcon} (no heap copy).
+
+	<p>The store has a byte budget: when the stored data exceeds it, the least recently used addresses are dropped (and their files deleted
+	when no other address refers to them); the most recently stored favicon is always kept, even if it alone exceeds the budget. All files are written atomically (temporary file + atomic rename), so a crash never leaves
+	a partial favicon or index behind.
+
+	<p>Directory layout:
+	<ul>
+		<li>{@code <dir>/index}: one line per address ({@code hash}, {@code size} and {@code address}, tab separated), from the least to the most recently used.</li>
+		<li>{@code <dir>/journal}: the changes made after the index was written, one line each: {@code +} and an index line when an address is
+			stored, {@code -} and the address when it is removed. Each change appends a single line, so storing a favicon doesn't rewrite the whole
+			index; the journal is merged into the index (and deleted) when the store is opened, on {@link #flush flush}, and when it grows longer than the index.</li>
+		<li>{@code <dir>/<hash>.ico}: the raw favicon data.</li>
+	</ul>
+
+	<p>Note that on some platforms (e.g. Windows) an evicted file can't be deleted while it is still mapped by a {@link TinyIcon};
+	such files are deleted the next time the store is opened.
+
+	<p>Example:
+	<blockquote>
+		{@code final FaviconStore store = new FaviconStore (Paths.get ("favicons"), 64 << 20, new FaviconLoader ());}<br>
+		{@code final TinyIcon ti = store.load ("https://www.github.com");}
+	</blockquote>
+*/
+public final class FaviconStore
+{
+	private final static String INDEX_NAME   = "index";
+	private final static String JOURNAL_NAME = "journal";
+	private final static String BLOB_EXT   = ".ico";
+	private final static String TMP_EXT    = ".tmp";
+
+	// Journal records allowed beyond the number of addresses before the journal is merged into the index
+	private final static int JOURNAL_SLACK = 64;
+
+	private final Path dir;
+	private final long max_bytes;
+	private final FaviconLoader loader;
+
+	// Access-ordered map (LRU): address -> stored item
+	private final LinkedHashMap <String, Item> items = new LinkedHashMap (16, 0.75f, true);
+
+	// Number of addresses referring to each hash
+	private final HashMap <String, Integer> refs = new HashMap ();
+
+	// Bytes of all distinct files
+	private long total_bytes;
+
+	// Records in the journal
+	private int journal_records;
+
+	// A stored favicon
+	private static final class Item
+	{
+		final String hash;
+		final long size;
+
+		Item (String hash, long size)
+		{
+			this.hash = hash;
+			this.size = size;
+		}
+	}
+
+	/**
+		Opens (or creates) a {@code FaviconStore} in the given directory.<br>
+		The journal is merged into the index, index entries whose file is missing are dropped, and files which are not referenced by the index are deleted.
+
+		@param dir       The directory of the store (created if it doesn't exist).
+		@param max_bytes The byte budget of the store.
+		@param loader    The {@link FaviconLoader} used to download missing favicons.
+
+		@throws IOException if the directory can't be created or the index can't be read.
+		@throws IllegalArgumentException if {@code max_bytes} {@literal <=} 0.
+	*/
+	public FaviconStore (Path dir, long max_bytes, FaviconLoader loader) throws IOException
+	{
+		if (max_bytes <= 0)
+			throw new IllegalArgumentException ("Invalid byte budget: " + max_bytes);
+
+		this.dir       = Files.createDirectories (dir);
+		this.max_bytes = max_bytes;
+		this.loader    = loader;
+
+		readIndex ();
+		deleteOrphans ();
+
+		if (journal_records > 0)
+			writeIndex ();
+	}
+
+	/**
+		Loads the {@code favicon} of the given address from the store or, if it isn't stored yet, downloads and stores it.<br>
+		A '{@code favicon.ico}' is automatically appended to the address.
+
+		@param url The remote address (e.g. {@code https://www.github.com}).
+		@return a new (memory-mapped) {@link TinyIcon}.
+
+		@throws IOException              if an I/O exception occurs during downloading or storing the favicon.
+		@throws InvalidIconException     if the favicon is an invalid icon (invalid favicons are not stored).
+		@throws InvalidIconDataException if the favicon has wrong data inside (invalid favicons are not stored).
+	*/
+	public TinyIcon load (String url) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		final TinyIcon stored = lookup (url);
+
+		if (stored != null)
+			return (stored);
+
+		final IconReader data = loader.read (url);
+
+		// Only valid icons are stored
+		new TinyIcon (data, FaviconLoader.FAVICON_NAME);
+
+		return (store (url, data));
+	}
+
+	/**
+		Checks if the {@code favicon} of the given address is stored.
+		@param url The remote address (e.g. {@code https://www.github.com}).
+		@return {@code true} if the favicon is stored, {@code false} otherwise.
+	*/
+	public synchronized boolean contains (String url)
+	{
+		return (items.containsKey (url));
+	}
+
+	/**
+		Removes the given address from the store (its file is deleted if no other address refers to it).
+		@param url The remote address (e.g. {@code https://www.github.com}).
+		@throws IOException if the journal can't be written.
+	*/
+	public synchronized void invalidate (String url) throws IOException
+	{
+		if (remove (url))
+			appendJournal ("-\t" + url + "\n", 1);
+	}
+
+	/**
+		Merges the journal into the index, saving the current usage order (LRU) of the addresses too.<br>
+		Stored and removed favicons are always saved, but the usage order of loads from the store is only saved by this method;
+		call it, for example, before the application exits.
+
+		@throws IOException if the index can't be written.
+	*/
+	public synchronized void flush () throws IOException
+	{
+		writeIndex ();
+	}
+
+	/**
+		Returns the number of bytes used by the stored favicons.
+		@return the total size of the stored (distinct) favicons.
+	*/
+	public synchronized long getStoredBytes ()
+	{
+		return (total_bytes);
+	}
+
+	/**
+		Returns the number of stored addresses.
+		@return the number of stored addresses.
+	*/
+	public synchronized int size ()
+	{
+		return (items.size ());
+	}
+
+	// Map the file of a stored address (updating its LRU position) or return null
+	private synchronized TinyIcon lookup (String url) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		final Item it = items.get (url);
+
+		if (it == null)
+			return (null);
+
+		try
+		{
+			return (new TinyIcon (blobPath (it.hash), true));
+		}
+		catch (NoSuchFileException e)
+		{
+			// Removed behind our back: download it again
+			invalidate (url);
+			return (null);
+		}
+	}
+
+	// Store the data of an address and map its file (Files are mapped under the lock, so they can't be evicted in the meantime)
+	private TinyIcon store (String url, IconReader data) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		final ByteBuffer bb = data.slice (0, data.length ());
+		final String hash = IconUtils.sha256 (bb);
+		final Path blob = blobPath (hash);
+
+		synchronized (this)
+		{
+			// The same content always gives the same file
+			if (!Files.exists (blob))
+				writeAtomically (Files.createTempFile (dir, hash, TMP_EXT), bb, blob);
+
+			// The new reference is taken first: storing the same content again for an address must not delete its file
+			if (refs.merge (hash, 1, Integer :: sum) == 1)
+				total_bytes += data.length ();
+
+			remove (url);
+
+			items.put (url, new Item (hash, data.length ()));
+
+			// Evict the least recently used addresses (but never the new one)
+			final Iterator <Map.Entry <String, Item>> it = items.entrySet ().iterator ();
+			final StringBuilder sb = new StringBuilder ();
+			int records = 1;
+
+			while ((total_bytes > max_bytes) && (items.size () > 1))
+			{
+				final Map.Entry <String, Item> eldest = it.next ();
+
+				if (eldest.getKey ().equals (url))
+					break;
+
+				final Item old = eldest.getValue ();
+
+				it.remove ();
+				release (old);
+
+				sb.append ("-\t").append (eldest.getKey ()).append ('\n');
+				records ++;
+			}
+
+			sb.append ("+\t").append (hash).append ('\t').append (data.length ()).append ('\t').append (url).append ('\n');
+			appendJournal (sb.toString (), records);
+
+			return (new TinyIcon (blob, true));
+		}
+	}
+
+	// Remove an address (without writing the journal)
+	private boolean remove (String url)
+	{
+		final Item it = items.remove (url);
+
+		if (it == null)
+			return (false);
+
+		release (it);
+		return (true);
+	}
+
+	// Drop a reference to a file (deleting it when unused)
+	private void release (Item removed)
+	{
+		if (refs.merge (removed.hash, -1, Integer :: sum) <= 0)
+		{
+			refs.remove (removed.hash);
+			total_bytes -= removed.size;
+
+			try
+			{
+				Files.deleteIfExists (blobPath (removed.hash));
+			}
+			catch (IOException e)
+			{
+				// Still mapped (e.g. on Windows): it will be deleted on the next opening
+				Logger.getLogger (FaviconStore.class.getName ()).log (Level.FINE, null, e);
+			}
+		}
+	}
+
+	// Read the index and replay the journal over it
+	private void readIndex () throws IOException
+	{
+		final LinkedHashMap <String, Item> found = new LinkedHashMap ();
+		final Path index = dir.resolve (INDEX_NAME);
+		final Path journal = dir.resolve (JOURNAL_NAME);
+
+		if (Files.exists (index))
+		{
+			for (String line : Files.readAllLines (index, StandardCharsets.UTF_8))
+				putRecord (found, line);
+		}
+
+		if (Files.exists (journal))
+		{
+			final String lines [] = new String (Files.readAllBytes (journal), StandardCharsets.UTF_8).split ("\n", -1);
+
+			// The last line is either empty or cut by a crash
+			for (int n = 0; n < lines.length - 1; n ++)
+			{
+				if (lines [n].startsWith ("-\t"))
+					found.remove (lines [n].substring (2));
+				else if (lines [n].startsWith ("+\t"))
+					putRecord (found, lines [n].substring (2));
+			}
+
+			// Counting the last line too, so a cut line is never continued by the next record
+			journal_records = lines.length;
+		}
+
+		for (Map.Entry <String, Item> e : found.entrySet ())
+		{
+			final Item it = e.getValue ();
+
+			try
+			{
+				if (Files.size (blobPath (it.hash)) != it.size)
+					continue;
+			}
+			catch (IOException ex)
+			{
+				// Missing file: skip it
+				continue;
+			}
+
+			items.put (e.getKey (), it);
+
+			if (refs.merge (it.hash, 1, Integer :: sum) == 1)
+				total_bytes += it.size;
+		}
+	}
+
+	// Put an index line ('hash', 'size' and 'address') as the most recently used address
+	private static void putRecord (LinkedHashMap <String, Item> found, String line)
+	{
+		final String fields [] = line.split ("\t", 3);
+
+		if (fields.length != 3)
+			return;
+
+		try
+		{
+			final Item it = new Item (fields [0], Long.parseLong (fields [1]));
+
+			found.remove (fields [2]);
+			found.put (fields [2], it);
+		}
+		catch (NumberFormatException e)
+		{
+			// Corrupted line: skip it
+		}
+	}
+
+	// Delete unreferenced files and temporary files left by a crash
+	private void deleteOrphans () throws IOException
+	{
+		try (final DirectoryStream <Path> ds = Files.newDirectoryStream (dir))
+		{
+			for (Path p : ds)
+			{
+				final String name = p.getFileName ().toString ();
+				final boolean orphan = name.endsWith (TMP_EXT) ||
+					(name.endsWith (BLOB_EXT) && !refs.containsKey (name.substring (0, name.length () - BLOB_EXT.length ())));
+
+				if (orphan)
+				{
+					try
+					{
+						Files.deleteIfExists (p);
+					}
+					catch (IOException e)
+					{
+						Logger.getLogger (FaviconStore.class.getName ()).log (Level.FINE, null, e);
+					}
+				}
+			}
+		}
+	}
+
+	private void writeIndex () throws IOException
+	{
+		final StringBuilder sb = new StringBuilder ();
+
+		for (Map.Entry <String, Item> e : items.entrySet ())
+			sb.append (e.getValue ().hash).append ('\t').append (e.getValue ().size).append ('\t').append (e.getKey ()).append ('\n');
+
+		writeAtomically (Files.createTempFile (dir, INDEX_NAME, TMP_EXT), ByteBuffer.wrap (sb.toString ().getBytes (StandardCharsets.UTF_8)), dir.resolve (INDEX_NAME));
+
+		// The index holds every change now
+		Files.deleteIfExists (dir.resolve (JOURNAL_NAME));
+		journal_records = 0;
+	}
+
+	// Append records to the journal (merging it into the index when it grows longer than the index)
+	private void appendJournal (String records, int count) throws IOException
+	{
+		Files.write (dir.resolve (JOURNAL_NAME), records.getBytes (StandardCharsets.UTF_8),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+		journal_records += count;
+
+		if (journal_records > items.size () + JOURNAL_SLACK)
+			writeIndex ();
+	}
+
+	private Path blobPath (String hash)
+	{
+		return (dir.resolve (hash + BLOB_EXT));
+	}
+
+	// Write the data to a temporary file, force it to the device, then rename it
+	private static void writeAtomically (Path tmp, ByteBuffer bb, Path dest) throws IOException
+	{
+		try (final FileChannel fc = FileChannel.open (tmp, StandardOpenOption.WRITE))
+		{
+			while (bb.hasRemaining ())
+				fc.write (bb);
+
+			fc.force (true);
+		}
+		catch (IOException e)
+		{
+			Files.deleteIfExists (tmp);
+			throw e;
+		}
+
+		moveAtomically (tmp, dest);
+	}
+
+	private static void moveAtomically (Path src, Path dest) throws IOException
+	{
+		try
+		{
+			Files.move (src, dest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e)
+		{
+			Files.deleteIfExists (src);
+			throw e;
+		}
+	}
+}
@@ -1,6 +1,11 @@
 package org.qteam.tinyicon;
 
+import org.qteam.tinyicon.structs.*;
+import java.util.logging.*;
+import java.nio.channels.*;
 import java.awt.image.*;
+import java.nio.*;
+import java.io.*;
 
 /**
 	The concrete icon entry. The {@code Icon} class represents a single icon instance and it is the base entry to work with.
@@ -9,7 +14,9 @@ import java.awt.image.*;
 	the {@link TinyIcon} class can be used to get {@code Icon} instances.<br>
 
 	The most common usage is just to get the associated {@link BufferedImage} ({@link #getImage getImage} method), but
-	some information (such as {@code width}, {@code height}, {@code bpp}, etc.) can also be queried.
+	some information (such as {@code width}, {@code height}, {@code bpp}, etc.) can also be queried.<br>
+	The image is decoded only on the first {@link #getImage getImage} call, so searching, sorting or extracting icons
+	(which only rely on this information) never decodes any pixel.
 
 	@see TinyIcon#getIcon(int) getIcon (int)
 	@see TinyIcon#getIcon(Predicate) getIcon (Predicate &lt;Icon&gt;)
@@ -23,7 +30,12 @@ public final class Icon
 	private final int bpp;
 
 	private final boolean isPng;
-	private final BufferedImage image;
+	private volatile BufferedImage image;
+
+	// Source of the image ('null' if the image was supplied to the public constructor)
+	private final IconSource source;
+	private final IconDirEntry entry;
+	private final int index;
 
 	/**
 		Constructs a new {@code Icon} with the given parameters.
@@ -33,7 +45,7 @@ public final class Icon
 		@param height The height of the icon in pixels.
 		@param bpp    Bits per pixel (Valid values: 1, 4, 8, 24, 32).
 		@param isPng  True if the icon was compressed, false otherwise.
-		@param image  The actual image pixels.
+		@param image  The actual image pixels (Must not be {@code null}).
 	*/
 	public Icon (int width, int height, int bpp, boolean isPng, BufferedImage image)
 	{
@@ -42,6 +54,24 @@ public final class Icon
 		this.bpp    = bpp;
 		this.image  = image;
 		this.isPng  = isPng;
+
+		this.source = null;
+		this.entry  = null;
+		this.index  = -1;
+	}
+
+	// Constructs an Icon that decodes its image (the entry at 'index' in 'source') on demand
+	Icon (IconSource source, IconDirEntry entry, int index, int width, int height, int bpp, boolean isPng)
+	{
+		this.width  = width;
+		this.height = height;
+		this.bpp    = bpp;
+		this.image  = null;
+		this.isPng  = isPng;
+
+		this.source = source;
+		this.entry  = entry;
+		this.index  = index;
 	}
 
 	/**
@@ -81,12 +111,311 @@ public final class Icon
 	}
 
 	/**
-		Returns the associated {@link BufferedImage} of the {@code Icon}.
-		@return the associated {@link BufferedImage} of this {@code Icon}.
+		Returns the associated {@link BufferedImage} of the {@code Icon}.<br>
+		The image is decoded on the first call and then reused.
+
+		@return the associated {@link BufferedImage} of this {@code Icon} or {@code null} if the image can't be decoded
+		(e.g. a corrupted {@code png} or truncated icon data).
 	*/
 	public BufferedImage getImage ()
 	{
-		return (image);
+		BufferedImage img = image;
+
+		if (img == null)
+		{
+			try
+			{
+				img = decode ();
+			}
+			catch (IOException | InvalidIconDataException | RuntimeException e)
+			{
+				Logger.getLogger (Icon.class.getName ()).log (Level.SEVERE, null, e);
+				return (null);
+			}
+		}
+
+		return (img);
+	}
+
+	/**
+		Returns the image of the {@code Icon}, decoded with the buffers (and in the {@link PixelFormat}) of the given {@link DecoderContext}.<br>
+		If the image is already decoded (e.g. by {@link #getImage() getImage ()}), it is returned as is; otherwise it is decoded into the
+		image of the context and it is not kept by this {@code Icon}, so decoding many icons with the same size allocates almost nothing.
+		A bitmap image returned by this method is overwritten by the next decoding with the same context.
+
+		@param ctx The decoding context of the current thread.
+		@return the image of this {@code Icon} or {@code null} if the image can't be decoded (e.g. a corrupted {@code png} or truncated icon data).
+	*/
+	public BufferedImage getImage (DecoderContext ctx)
+	{
+		final BufferedImage img = image;
+
+		if (img != null)
+			return (img);
+
+		try
+		{
+			return (IconDecoder.decode (source.icon_name, source.reader, entry, ctx));
+		}
+		catch (IOException | InvalidIconDataException | RuntimeException e)
+		{
+			Logger.getLogger (Icon.class.getName ()).log (Level.SEVERE, null, e);
+			return (null);
+		}
+	}
+
+	/**
+		Returns the image of the {@code Icon} scaled to the given size.<br>
+		The image is resampled with an area-averaging (box) filter, which gives smooth results when downscaling; if the {@code Icon}
+		already has the given size, its pixels are copied as they are. Either way the returned image is a new one, which the caller may
+		modify (the image returned by {@link #getImage getImage} may be shared, e.g. by a {@link DecodedIconCache}, and can have any type).
+
+		@param width  The wanted width.
+		@param height The wanted height.
+		@return a new {@link BufferedImage#TYPE_INT_ARGB TYPE_INT_ARGB} image or {@code null} if the image can't be decoded.
+		@throws IllegalArgumentException if the size is invalid.
+		@see TinyIcon#renderImage(int, int) TinyIcon.renderImage (int, int)
+	*/
+	public BufferedImage getScaledImage (int width, int height)
+	{
+		if ((width <= 0) || (height <= 0))
+			throw new IllegalArgumentException ("Invalid image size: " + width + "x" + height);
+
+		final BufferedImage img = getImage ();
+
+		return ((img == null) ? null : IconScaler.scale (img, width, height));
+	}
+
+	/**
+		Decodes the image of the {@code Icon} into the given {@code int array}, as {@code ARGB} pixels (not premultiplied), without building any
+		{@link BufferedImage}: bitmap icons are decoded straight into the array, compressed ({@code png}) icons are decoded and then copied.
+		If the image is already decoded, its pixels are copied.
+
+		@param dest   The destination array.
+		@param ofs    The index of the first (top left) pixel.
+		@param stride The distance (in pixels) between two rows.
+		@param ctx    The decoding context of the current thread or {@code null} to use a new one.
+		@throws IOException              if the compressed ({@code png}) image can't be decoded.
+		@throws InvalidIconDataException if the icon has wrong data inside.
+		@throws IllegalArgumentException if the image (<em>height</em> rows of <em>width</em> pixels) doesn't fit in the array.
+	*/
+	public void decodeTo (int dest [], int ofs, int stride, DecoderContext ctx) throws IOException, InvalidIconDataException
+	{
+		final DecoderContext dc = (ctx == null) ? new DecoderContext () : ctx;
+		decodeTo (new IconDecoder.IntArrayOutput (dest, ofs, stride, width, height), dc);
+	}
+
+	/**
+		Decodes the image of the {@code Icon} into the given {@link IntBuffer}, as {@code ARGB} pixels (not premultiplied), without building any
+		{@link BufferedImage} (See {@link #decodeTo(int[], int, int, DecoderContext) decodeTo (int [], ...)}).<br>
+		Indexes are absolute (the position of the buffer is neither used nor changed); buffers backed by an array are written in place,
+		others (e.g. views of a direct {@link ByteBuffer}) one row at a time.
+
+		@param dest   The destination buffer.
+		@param ofs    The index of the first (top left) pixel.
+		@param stride The distance (in pixels) between two rows.
+		@param ctx    The decoding context of the current thread or {@code null} to use a new one.
+		@throws IOException              if the compressed ({@code png}) image can't be decoded.
+		@throws InvalidIconDataException if the icon has wrong data inside.
+		@throws IllegalArgumentException if the image doesn't fit in the buffer (up to its limit) or the buffer is read-only.
+	*/
+	public void decodeTo (IntBuffer dest, int ofs, int stride, DecoderContext ctx) throws IOException, InvalidIconDataException
+	{
+		if (dest.isReadOnly ())
+			throw new IllegalArgumentException ("Read-only buffer");
+
+		final DecoderContext dc = (ctx == null) ? new DecoderContext () : ctx;
+
+		if (dest.hasArray ())
+		{
+			IconDecoder.Output.checkLayout (dest.limit (), ofs, stride, width, height);
+			decodeTo (new IconDecoder.IntArrayOutput (dest.array (), dest.arrayOffset () + ofs, stride, width, height), dc);
+		}
+		else
+			decodeTo (new IconDecoder.IntBufferOutput (dest, ofs, stride, width, height, dc), dc);
+	}
+
+	/**
+		Decodes the image of the {@code Icon} into the given {@link ByteBuffer} (e.g. a direct buffer shared with a native rendering surface),
+		4 bytes per pixel (not premultiplied) in the given order, without building any {@link BufferedImage}.<br>
+		Indexes are absolute (the position of the buffer is neither used nor changed); each row is converted and then copied at once.
+
+		@param dest   The destination buffer.
+		@param ofs    The index of the first byte of the first (top left) pixel.
+		@param stride The distance (in bytes) between two rows.
+		@param order  The order of the 4 bytes of each pixel.
+		@param ctx    The decoding context of the current thread or {@code null} to use a new one.
+		@throws IOException              if the compressed ({@code png}) image can't be decoded.
+		@throws InvalidIconDataException if the icon has wrong data inside.
+		@throws IllegalArgumentException if the image doesn't fit in the buffer (up to its limit), the buffer is read-only or {@code order} is {@code null}.
+	*/
+	public void decodeTo (ByteBuffer dest, int ofs, int stride, ComponentOrder order, DecoderContext ctx) throws IOException, InvalidIconDataException
+	{
+		if (dest.isReadOnly ())
+			throw new IllegalArgumentException ("Read-only buffer");
+
+		if (order == null)
+			throw new IllegalArgumentException ("Invalid component order");
+
+		final DecoderContext dc = (ctx == null) ? new DecoderContext () : ctx;
+		decodeTo (new IconDecoder.ByteBufferOutput (dest, ofs, stride, order, width, height, dc), dc);
+	}
+
+	// Decode (or copy, if already decoded) the image into 'out'
+	private void decodeTo (IconDecoder.Output out, DecoderContext ctx) throws IOException, InvalidIconDataException
+	{
+		final BufferedImage img = image;
+
+		if (img != null)
+			IconDecoder.copy ((source == null) ? "" : source.icon_name, ArgbPixels.of (img), out);
+		else
+			IconDecoder.decode (source.icon_name, source.reader, entry, ctx, out);
+	}
+
+	// Decode the image (only once; the shared cache is used if enabled)
+	BufferedImage decode () throws IOException, InvalidIconDataException
+	{
+		BufferedImage img = image;
+
+		if (img == null)
+		{
+			synchronized (this)
+			{
+				img = image;
+
+				if (img == null)
+				{
+					final DecodedIconCache cache = source.cache;
+					final PixelFormat format = source.format;
+
+					if (cache == null)
+						img = IconDecoder.decode (source.icon_name, source.reader, entry, new DecoderContext (format));
+
+					else if ((img = cache.get (source.getHash (), index, format)) == null)
+					{
+						img = IconDecoder.decode (source.icon_name, source.reader, entry, new DecoderContext (format));
+						cache.put (source.getHash (), index, format, img);
+					}
+
+					image = img;
+				}
+			}
+		}
+
+		return (img);
+	}
+
+	/**
+		Returns the image of the {@code Icon} as {@code png byte array}.<br>
+		For compressed ({@code png}) icons the original {@code png} data stored in the icon is returned as is (a plain copy: the image
+		is neither decoded nor encoded again); other icons are decoded and converted with {@link IconUtils#imgToPngBytes imgToPngBytes}.
+
+		@return the {@code png} data or {@code null} if an error occurs.
+	*/
+	public byte [] getImageAsPng ()
+	{
+		return (getImageAsPng (null));
+	}
+
+	/**
+		Returns the image of the {@code Icon} as {@code png byte array}, converted with the given encoder.<br>
+		For compressed ({@code png}) icons the original {@code png} data stored in the icon is returned as is (a plain copy: the image
+		is neither decoded nor encoded again).
+
+		@param encoder The {@link PngEncoder} used to convert bitmap icons or {@code null} to use {@link javax.imageio.ImageIO#write ImageIO.write}.
+		@return the {@code png} data or {@code null} if an error occurs.
+	*/
+	public byte [] getImageAsPng (PngEncoder encoder)
+	{
+		if (isPng && (source != null))
+		{
+			try
+			{
+				final ByteBuffer bb = source.reader.slice (entry.imageOffset, entry.bytesInRes);
+				final byte dest [] = new byte [bb.remaining ()];
+
+				bb.get (dest);
+				return (dest);
+			}
+			catch (RuntimeException e)
+			{
+				Logger.getLogger (Icon.class.getName ()).log (Level.SEVERE, null, e);
+				return (null);
+			}
+		}
+
+		final BufferedImage img = getImage ();
+		return ((img == null) ? null : IconUtils.imgToPngBytes (img, encoder));
+	}
+
+	/**
+		Writes the image of the {@code Icon} as {@code png} data to the given stream (the stream is not closed).<br>
+		For compressed ({@code png}) icons the original {@code png} data stored in the icon is written as is, without any intermediate copy
+		when possible; other icons are decoded and converted with {@link IconUtils#imgToPngBytes imgToPngBytes}.
+
+		@param os The destination stream.
+		@throws IOException if an I/O error occurs or the image can't be decoded or converted.
+	*/
+	public void writePng (OutputStream os) throws IOException
+	{
+		writePng (os, null);
+	}
+
+	/**
+		Writes the image of the {@code Icon} as {@code png} data to the given stream (the stream is not closed).<br>
+		For compressed ({@code png}) icons the original {@code png} data stored in the icon is written as is, without any intermediate copy
+		when possible; other icons are decoded and streamed by the given encoder.
+
+		@param os      The destination stream.
+		@param encoder The {@link PngEncoder} used to convert bitmap icons or {@code null} to use {@link javax.imageio.ImageIO#write ImageIO.write}.
+		@throws IOException if an I/O error occurs or the image can't be decoded or converted.
+	*/
+	public void writePng (OutputStream os, PngEncoder encoder) throws IOException
+	{
+		if (isPng && (source != null))
+		{
+			final ByteBuffer bb;
+
+			try
+			{
+				bb = source.reader.slice (entry.imageOffset, entry.bytesInRes);
+			}
+			catch (UncheckedIOException e)
+			{
+				throw e.getCause ();
+			}
+
+			if (bb.hasArray ())
+				os.write (bb.array (), bb.arrayOffset () + bb.position (), bb.remaining ());
+			else
+				Channels.newChannel (os).write (bb);
+
+			return;
+		}
+
+		if (encoder != null)
+		{
+			final BufferedImage img = getImage ();
+
+			if (img == null)
+				throw new IOException ("Unable to decode the image");
+
+			encoder.encode (img, os);
+			return;
+		}
+
+		final byte png [] = getImageAsPng ();
+
+		if (png == null)
+			throw new IOException ("Unable to convert the image to png");
+
+		os.write (png);
+	}
+
+	// The icon entry of the image ('null' if the image was supplied to the public constructor)
+	IconDirEntry getEntry ()
+	{
+		return (entry);
 	}
 
 	/**
@@ -111,7 +440,7 @@ public final class Icon
 		sb.append ("height = ").append (height).append ("\n");
 		sb.append ("bpp    = ").append (bpp   ).append ("\n");
 		sb.append ("isPng  = ").append (isPng ).append ("\n");
-		sb.append ("image  = ").append (image ).append ("\n");
+		sb.append ("image  = ").append ((image == null) ? "(Not decoded yet)" : image).append ("\n");
 
 		return (sb.toString ());
 	}
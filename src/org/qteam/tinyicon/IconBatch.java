@@ -0,0 +1,387 @@
+package org.qteam.tinyicon;
+
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+import java.awt.image.*;
+import java.nio.file.*;
+import java.util.*;
+import java.io.*;
+
+/**
+	Processes large sets of {@code .ico} files through a pipeline of stages: <em>read</em> (file to memory), <em>parse</em>
+	(icon directory and image headers) and <em>decode</em> (all images).<br>
+	Each stage runs on its own threads and stages are connected by bounded queues, so a slow stage throttles the previous ones
+	(backpressure) and memory usage stays bounded, no matter how many files are processed. Sources are consumed lazily, so
+	huge directory walks (e.g. {@link Files#walk Files.walk}) can be passed directly.
+
+	<p>Results are delivered as soon as they are ready (not in the source order; see {@link Result#getIndex getIndex}),
+	on the thread that called {@link #process process}. A file that can't be processed is reported as a failed {@link Result}
+	and doesn't stop the batch.
+
+	<p>Example:
+	<blockquote>
+		{@code final IconBatch batch = new IconBatch ();}<br>
+		{@code try (final Stream <Path> files = Files.walk (Paths.get ("icons")).filter (p -> p.toString ().endsWith (".ico")))}<br>
+		{@code {}<br>
+		&nbsp;&nbsp;&nbsp;&nbsp;{@code batch.process (files, r -> System.out.println (r.getPath () + ": " + (r.isOk () ? "ok" : r.getError ())));}<br>
+		{@code }}
+	</blockquote>
+*/
+public final class IconBatch
+{
+	/** Default capacity of the queues between stages. */
+	public final static int DEFAULT_QUEUE_CAPACITY = 64;
+
+	private final int read_threads;
+	private final int parse_threads;
+	private final int decode_threads;
+	private final int queue_capacity;
+
+	// Marks the end of a queue
+	private final static Job END = new Job (-1, null);
+
+	// A file moving through the pipeline
+	private static final class Job
+	{
+		final long index;
+		final Path path;
+
+		IconReader reader;
+		TinyIcon icon;
+		List <BufferedImage> images;
+		Throwable error;
+
+		Job (long index, Path path)
+		{
+			this.index = index;
+			this.path  = path;
+		}
+	}
+
+	/**
+		The outcome of a single file of a batch.
+	*/
+	public static final class Result
+	{
+		private final long index;
+		private final Path path;
+		private final TinyIcon icon;
+		private final List <BufferedImage> images;
+		private final Throwable error;
+
+		private Result (Job job)
+		{
+			this.index  = job.index;
+			this.path   = job.path;
+			this.icon   = job.icon;
+			this.images = job.images;
+			this.error  = job.error;
+		}
+
+		/**
+			Returns the position of the file in the source stream (starting from 0).
+			@return the position of the file.
+		*/
+		public long getIndex ()
+		{
+			return (index);
+		}
+
+		/**
+			Returns the path of the file.
+			@return the path of the file.
+		*/
+		public Path getPath ()
+		{
+			return (path);
+		}
+
+		/**
+			Returns the processed icon.
+			@return the {@link TinyIcon} or {@code null} if the file couldn't be read or parsed.
+		*/
+		public TinyIcon getIcon ()
+		{
+			return (icon);
+		}
+
+		/**
+			Returns the decoded images, in the same order as the icons list of the {@link TinyIcon}.
+			@return the decoded images ({@code null} for images which couldn't be decoded) or {@code null} if the file
+			couldn't be read or parsed or if decoding is disabled.
+		*/
+		public List <BufferedImage> getImages ()
+		{
+			return (images);
+		}
+
+		/**
+			Returns the error that occurred while processing the file.<br>
+			If some images can't be decoded, this is the error of the first of them.
+
+			@return the error ({@link IOException}, {@link InvalidIconException}, {@link InvalidIconDataException}, a
+			{@link RuntimeException} or an {@link Error}, e.g. {@link OutOfMemoryError}) or {@code null} if the file was processed successfully.
+		*/
+		public Throwable getError ()
+		{
+			return (error);
+		}
+
+		/**
+			Checks if the file was processed successfully.
+			@return {@code true} if no error occurred, {@code false} otherwise.
+		*/
+		public boolean isOk ()
+		{
+			return (error == null);
+		}
+	}
+
+	/**
+		Constructs a new {@code IconBatch} with a default configuration: 2 threads to read, 1 to parse, one for each
+		available processor to decode and queues of {@link #DEFAULT_QUEUE_CAPACITY} files.
+	*/
+	public IconBatch ()
+	{
+		this (2, 1, Runtime.getRuntime ().availableProcessors (), DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+		Constructs a new {@code IconBatch}.
+
+		@param read_threads   The number of threads reading files.
+		@param parse_threads  The number of threads parsing icons.
+		@param decode_threads The number of threads decoding images (0 means no decoding: only the icon information is available).
+		@param queue_capacity The capacity of each queue between stages (the number of files kept in memory is bounded by the
+		                      capacities plus the number of threads).
+		@throws IllegalArgumentException if a number of threads or the queue capacity is invalid.
+	*/
+	public IconBatch (int read_threads, int parse_threads, int decode_threads, int queue_capacity)
+	{
+		if ((read_threads <= 0) || (parse_threads <= 0) || (decode_threads < 0) || (queue_capacity <= 0))
+			throw new IllegalArgumentException ("Invalid pipeline configuration");
+
+		this.read_threads   = read_threads;
+		this.parse_threads  = parse_threads;
+		this.decode_threads = decode_threads;
+		this.queue_capacity = queue_capacity;
+	}
+
+	/**
+		Processes all files of the given stream, passing each {@link Result} to {@code consumer} as soon as it is ready.<br>
+		This method returns when all files have been processed; the stream is consumed but not closed.
+		If {@code consumer} throws an exception (or the calling thread is interrupted) the batch is stopped and the exception is propagated.
+
+		@param sources  The files to be processed.
+		@param consumer The consumer of the results (called on the current thread).
+		@return the number of processed files.
+		@throws InterruptedException if the current thread is interrupted while waiting for results.
+	*/
+	public long process (Stream <Path> sources, Consumer <Result> consumer) throws InterruptedException
+	{
+		final BlockingQueue <Job> to_read   = new ArrayBlockingQueue (queue_capacity);
+		final BlockingQueue <Job> to_parse  = new ArrayBlockingQueue (queue_capacity);
+		final BlockingQueue <Job> to_decode = new ArrayBlockingQueue (queue_capacity);
+		final BlockingQueue <Job> done      = new ArrayBlockingQueue (queue_capacity);
+
+		final ArrayList <Thread> threads = new ArrayList ();
+		final AtomicReference <RuntimeException> feed_error = new AtomicReference ();
+
+		// Feed the sources (lazily: the feeder waits when the first queue is full)
+		threads.add
+		(
+			newThread
+			(
+				"TinyIcon-batch-feed",
+				() ->
+				{
+					try
+					{
+						try
+						{
+							final Iterator <Path> it = sources.iterator ();
+							long index = 0;
+
+							while (it.hasNext ())
+								to_read.put (new Job (index ++, it.next ()));
+						}
+						catch (RuntimeException e)
+						{
+							// e.g. an UncheckedIOException from a directory walk
+							feed_error.set (e);
+						}
+
+						to_read.put (END);
+					}
+					catch (InterruptedException e)
+					{
+						// Batch stopped
+					}
+				}
+			)
+		);
+
+		addStage (threads, "read", read_threads, to_read, to_parse, IconBatch :: read);
+		addStage (threads, "parse", parse_threads, to_parse, (decode_threads > 0) ? to_decode : done, IconBatch :: parse);
+
+		if (decode_threads > 0)
+			addStage (threads, "decode", decode_threads, to_decode, done, IconBatch :: decode);
+
+		long count = 0;
+
+		try
+		{
+			threads.forEach (Thread :: start);
+
+			for (Job job = done.take (); job != END; job = done.take ())
+			{
+				count ++;
+				consumer.accept (new Result (job));
+			}
+
+			if (feed_error.get () != null)
+				throw feed_error.get ();
+
+			return (count);
+		}
+		finally
+		{
+			// Stop all stages (they have already finished, unless the batch failed)
+			threads.forEach (Thread :: interrupt);
+		}
+	}
+
+	// Start 'n' workers moving jobs from 'in' to 'out' (failed jobs skip the stage)
+	private static void addStage (List <Thread> threads, String name, int n, BlockingQueue <Job> in, BlockingQueue <Job> out, Consumer <Job> stage)
+	{
+		final AtomicInteger running = new AtomicInteger (n);
+
+		for (int t = 0; t < n; t ++)
+		{
+			threads.add
+			(
+				newThread
+				(
+					"TinyIcon-batch-" + name + "-" + (t + 1),
+					() ->
+					{
+						boolean stopped = false;
+						boolean ended   = false;
+
+						try
+						{
+							for (Job job = in.take (); job != END; job = in.take ())
+							{
+								// Any failure (even an Error, e.g. OutOfMemoryError on a huge entry) is recorded in the job
+								if (job.error == null)
+								{
+									try
+									{
+										stage.accept (job);
+									}
+									catch (Throwable e)
+									{
+										job.error = e;
+									}
+								}
+
+								out.put (job);
+							}
+
+							ended = true;
+						}
+						catch (InterruptedException e)
+						{
+							// Batch stopped
+							stopped = true;
+						}
+						finally
+						{
+							// Whatever happened, the pipeline must drain
+							if (!stopped)
+								endWorker (in, out, running, ended);
+						}
+					}
+				)
+			);
+		}
+	}
+
+	// A worker of a stage has finished ('ended' if it took the END marker)
+	private static void endWorker (BlockingQueue <Job> in, BlockingQueue <Job> out, AtomicInteger running, boolean ended)
+	{
+		try
+		{
+			// Let the other workers of this stage see the end
+			if (ended)
+				in.put (END);
+
+			// The last worker closes the next queue
+			if (running.decrementAndGet () == 0)
+				out.put (END);
+		}
+		catch (InterruptedException e)
+		{
+			// Batch stopped
+		}
+	}
+
+	private static void read (Job job)
+	{
+		try
+		{
+			job.reader = IconReader.wrap (Files.readAllBytes (job.path));
+		}
+		catch (IOException | RuntimeException e)
+		{
+			job.error = e;
+		}
+	}
+
+	private static void parse (Job job)
+	{
+		try
+		{
+			job.icon = new TinyIcon (job.reader, job.path.getFileName ().toString ());
+		}
+		catch (InvalidIconException | InvalidIconDataException | RuntimeException e)
+		{
+			job.error = e;
+		}
+
+		job.reader = null;
+	}
+
+	private static void decode (Job job)
+	{
+		final ArrayList <BufferedImage> images = new ArrayList (job.icon.getNumOfIcons ());
+
+		// Decode on this thread (the stage already runs in parallel)
+		for (CompletableFuture <BufferedImage> f : job.icon.decodeImagesAsync (i -> true, Runnable :: run))
+		{
+			try
+			{
+				images.add (f.join ());
+			}
+			catch (CompletionException e)
+			{
+				if (job.error == null)
+					job.error = (e.getCause () != null) ? e.getCause () : e;
+
+				images.add (null);
+			}
+		}
+
+		job.images = images;
+	}
+
+	private static Thread newThread (String name, Runnable r)
+	{
+		final Thread t = new Thread (r, name);
+		t.setDaemon (true);
+
+		return (t);
+	}
+}
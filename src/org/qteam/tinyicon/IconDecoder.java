@@ -0,0 +1,808 @@
+package org.qteam.tinyicon;
+
+import org.qteam.tinyicon.structs.*;
+import java.awt.image.*;
+import javax.imageio.*;
+import java.nio.*;
+import java.io.*;
+
+/**
+	The image decoder used by {@link Icon} to build the {@link BufferedImage} of a single icon entry.<br>
+	Bitmap entries are decoded directly from the icon data, while compressed ({@code png}) entries are decoded via {@link ImageIO}.
+	Each row is decoded as {@code ARGB} and then stored in the wanted {@link PixelFormat} while it is still in cache.
+*/
+final class IconDecoder
+{
+	// The 8 bits of each byte (from the most significant one), used to decode 1 bpp rows
+	private final static byte BITS [] = new byte [256 << 3];
+
+	static
+	{
+		for (int v = 0; v < 256; v ++)
+		{
+			for (int k = 0; k < 8; k ++)
+				BITS [(v << 3) | k] = (byte) ((v >> (7 - k)) & 1);
+		}
+	}
+
+	// IHDR chunk: type ('IHDR', little-endian), data length and end (signature + length + type + data + CRC)
+	private final static int PNG_IHDR_TYPE   = 0x52444849;
+	private final static int PNG_IHDR_LENGTH = 13;
+	private final static int PNG_IHDR_END    = 8 + 4 + 4 + 13 + 4;
+
+	// Constructor
+	private IconDecoder ()
+	{
+	}
+
+	/**
+		Decodes the image of the given icon entry.
+
+		@param icon_name The name of the icon.
+		@param reader    The reader that contains the icon data.
+		@param ide       The icon entry to be decoded.
+		@return the decoded image.
+
+		@throws IOException              if the compressed ({@code png}) image can't be decoded.
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. unsupported {@code bitCount} value).
+	*/
+	static BufferedImage decode (String icon_name, IconReader reader, IconDirEntry ide) throws IOException, InvalidIconDataException
+	{
+		return (decode (icon_name, reader, ide, new DecoderContext ()));
+	}
+
+	/**
+		Decodes the image of the given icon entry, using the buffers (and the pixel format) of the given context.<br>
+		Bitmap entries are decoded into the image of the context (See {@link DecoderContext#image image}).
+
+		@param icon_name The name of the icon.
+		@param reader    The reader that contains the icon data.
+		@param ide       The icon entry to be decoded.
+		@param ctx       The context that provides the image and the scratch buffers.
+		@return the decoded image.
+
+		@throws IOException              if the compressed ({@code png}) image can't be decoded.
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. unsupported {@code bitCount} value).
+	*/
+	static BufferedImage decode (String icon_name, IconReader reader, IconDirEntry ide, DecoderContext ctx) throws IOException, InvalidIconDataException
+	{
+		final IconImage icoimg = ide.iconimage;
+
+		// Load the whole image at once (if the reader is not fully in memory)
+		reader.prefetch (ide.imageOffset, ide.bytesInRes);
+
+		// Icon is a bitmap: get a BufferedImage of the wanted type and decode straight into its pixels (for int types: no intermediate buffer)
+		if (icoimg != null)
+		{
+			final BitmapInfoHeader bih = icoimg.header;
+
+			final int type = imageType (ctx.getPixelFormat (), (ctx.getPixelFormat () == PixelFormat.OPAQUE_RGB) && isOpaque (reader, icoimg));
+			final BufferedImage img = ctx.image (bih.width, bih.height, type);
+
+			decodeBitmap (icon_name, reader, icoimg, new ImageOutput (img, ctx), ctx);
+			return (img);
+		}
+
+		// Icon is a PNG: decode it via ImageIO
+		final BufferedImage img = readPng (icon_name, reader, ide);
+
+		if (ctx.getPixelFormat () == PixelFormat.ARGB)
+			return (img);
+
+		// Store the rows in the wanted format
+		final ArgbPixels px = ArgbPixels.of (img);
+		final ImageOutput out = new ImageOutput (new BufferedImage (px.width, px.height, imageType (ctx.getPixelFormat (), isOpaque (px))), ctx);
+
+		copy (icon_name, px, out);
+		return (out.image);
+	}
+
+	/**
+		Decodes the image of the given icon entry into the given destination (e.g. a caller-supplied buffer), as {@code ARGB} rows.<br>
+		Bitmap entries are decoded straight into the destination; compressed ({@code png}) entries are decoded via {@link ImageIO} and then copied.
+
+		@param icon_name The name of the icon.
+		@param reader    The reader that contains the icon data.
+		@param ide       The icon entry to be decoded.
+		@param ctx       The context that provides the scratch buffers.
+		@param out       The destination (with the same size of the image).
+
+		@throws IOException              if the compressed ({@code png}) image can't be decoded.
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. unsupported {@code bitCount} value).
+	*/
+	static void decode (String icon_name, IconReader reader, IconDirEntry ide, DecoderContext ctx, Output out) throws IOException, InvalidIconDataException
+	{
+		final IconImage icoimg = ide.iconimage;
+
+		// Load the whole image at once (if the reader is not fully in memory)
+		reader.prefetch (ide.imageOffset, ide.bytesInRes);
+
+		if (icoimg != null)
+		{
+			checkSize (icon_name, out, icoimg.header.width, icoimg.header.height);
+			decodeBitmap (icon_name, reader, icoimg, out, ctx);
+		}
+		else
+			copy (icon_name, ArgbPixels.of (readPng (icon_name, reader, ide)), out);
+	}
+
+	/**
+		Copies the pixels of an image (e.g. an already decoded one) into the given destination.
+
+		@param icon_name The name of the icon.
+		@param px        The pixels.
+		@param out       The destination (with the same size of the image).
+		@throws InvalidIconDataException if the size of the image and the destination don't match.
+	*/
+	static void copy (String icon_name, ArgbPixels px, Output out) throws InvalidIconDataException
+	{
+		checkSize (icon_name, out, px.width, px.height);
+
+		for (int y = 0; y < px.height; y ++)
+		{
+			final int img_yofs = out.begin (y);
+
+			System.arraycopy (px.data, px.ofs + px.scan * y, out.buf, img_yofs, px.width);
+			out.end (y, img_yofs);
+		}
+	}
+
+	// Decode a bitmap, row by row (bottom-up), into 'out'
+	private static void decodeBitmap (String icon_name, IconReader reader, IconImage icoimg, Output out, DecoderContext ctx) throws InvalidIconDataException
+	{
+		final BitmapInfoHeader bih = icoimg.header;
+		final int pal [] = icoimg.pal;
+
+		final int width         = bih.width;
+		final int height        = bih.height;
+		final int stride        = bih.stride;
+		final int colorCount    = bih.colorCount;
+		final int colorMapOfs   = icoimg.colorMapOffset;
+		final int xorMaskOffset = icoimg.xorMaskOffset;
+		final int andMaskOffset = icoimg.andMaskOffset;
+
+		final int img_buf [] = out.buf;
+
+		switch (bih.bitCount)
+		{
+			// 2 colors
+			case 1:
+			{
+				// Row size in bytes (padded to the nearest byte) and pixels of the last (partial) byte
+				final int pwidth = IconUtils.bytePad (width);
+				final int full   = width >> 3;
+				final int tail   = width & 7;
+
+				final ByteBuffer rows = rows (reader, xorMaskOffset, stride, pwidth, height);
+				final byte row [] = ctx.row (pwidth);
+
+				final AndMask mask = new AndMask (reader, andMaskOffset, width, height, ctx);
+
+				// Xor table (8 pixels per byte)
+				for (int y = 0; y < height; y ++)
+				{
+					final int img_yofs = out.begin (height - 1 - y);
+					int img_ofs = img_yofs;
+
+					rows.position (stride * y);
+					rows.get (row, 0, pwidth);
+
+					for (int x = 0; x < full; x ++, img_ofs += 8)
+					{
+						final int t = (row [x] & 0xFF) << 3;
+
+						img_buf [img_ofs    ] = pal [BITS [t    ]];
+						img_buf [img_ofs + 1] = pal [BITS [t + 1]];
+						img_buf [img_ofs + 2] = pal [BITS [t + 2]];
+						img_buf [img_ofs + 3] = pal [BITS [t + 3]];
+						img_buf [img_ofs + 4] = pal [BITS [t + 4]];
+						img_buf [img_ofs + 5] = pal [BITS [t + 5]];
+						img_buf [img_ofs + 6] = pal [BITS [t + 6]];
+						img_buf [img_ofs + 7] = pal [BITS [t + 7]];
+					}
+
+					// Tail
+					if (tail != 0)
+					{
+						final int t = (row [full] & 0xFF) << 3;
+
+						for (int k = 0; k < tail; k ++)
+							img_buf [img_ofs + k] = pal [BITS [t + k]];
+					}
+
+					// And table (while the row is still in cache)
+					mask.apply (y, img_buf, img_yofs);
+					out.end (height - 1 - y, img_yofs);
+				}
+				break;
+			}
+
+			// 16 colors
+			case 4:
+			{
+				// Row size in bytes (padded to the nearest nibble); the 16 entries palette is the lookup table of each nibble
+				final int pwidth = (width + 1) >> 1;
+				final int full   = width >> 1;
+
+				final ByteBuffer rows = rows (reader, xorMaskOffset, stride, pwidth, height);
+				final byte row [] = ctx.row (pwidth);
+
+				final AndMask mask = new AndMask (reader, andMaskOffset, width, height, ctx);
+
+				// Xor table (2 pixels per byte)
+				for (int y = 0; y < height; y ++)
+				{
+					final int img_yofs = out.begin (height - 1 - y);
+					int img_ofs = img_yofs;
+
+					rows.position (stride * y);
+					rows.get (row, 0, pwidth);
+
+					for (int x = 0; x < full; x ++, img_ofs += 2)
+					{
+						final int val = row [x] & 0xFF;
+
+						img_buf [img_ofs    ] = pal [val >> 4];
+						img_buf [img_ofs + 1] = pal [val & 0x0F];
+					}
+
+					// Tail (High nibble only)
+					if ((width & 1) != 0)
+						img_buf [img_ofs] = pal [(row [full] & 0xFF) >> 4];
+
+					// And table (while the row is still in cache)
+					mask.apply (y, img_buf, img_yofs);
+					out.end (height - 1 - y, img_yofs);
+				}
+				break;
+			}
+
+			// 256 colors
+			case 8:
+			{
+				final ByteBuffer rows = rows (reader, xorMaskOffset, stride, width, height);
+				final byte row [] = ctx.row (width);
+
+				final AndMask mask = new AndMask (reader, andMaskOffset, width, height, ctx);
+
+				// Xor table
+				for (int y = 0; y < height; y ++)
+				{
+					final int img_yofs = out.begin (height - 1 - y);
+
+					rows.position (stride * y);
+					rows.get (row, 0, width);
+
+					for (int x = 0; x < width; x ++)
+						img_buf [img_yofs + x] = pal [row [x] & 0xFF];
+
+					// And table (while the row is still in cache)
+					mask.apply (y, img_buf, img_yofs);
+					out.end (height - 1 - y, img_yofs);
+				}
+				break;
+			}
+
+			// 16777216 colors (True colors)
+			case 24:
+			{
+				final int pwidth = width * 3;
+
+				final ByteBuffer rows = rows (reader, colorMapOfs, stride, pwidth, height);
+				final byte row [] = ctx.row (pwidth);
+
+				final AndMask mask = new AndMask (reader, andMaskOffset, width, height, ctx);
+
+				// Xor table (BGR)
+				for (int y = 0; y < height; y ++)
+				{
+					final int img_yofs = out.begin (height - 1 - y);
+
+					rows.position (stride * y);
+					rows.get (row, 0, pwidth);
+
+					for (int x = 0, p = 0; x < width; x ++, p += 3)
+						img_buf [img_yofs + x] = IconUtils.MAKE_RGB (row [p + 2] & 0xFF, row [p + 1] & 0xFF, row [p] & 0xFF);
+
+					// And table (while the row is still in cache)
+					mask.apply (y, img_buf, img_yofs);
+					out.end (height - 1 - y, img_yofs);
+				}
+				break;
+			}
+
+			// 16777216 colors (True colors) + alpha
+			case 32:
+			{
+				// BGRA read as little-endian ints (slices are little-endian) is ARGB: each row is copied as is
+				final IntBuffer rows = rows (reader, colorMapOfs, width << 2, width << 2, height).asIntBuffer ();
+
+				for (int y = 0; y < height; y ++)
+				{
+					final int img_yofs = out.begin (height - 1 - y);
+
+					rows.position (width * y);
+					rows.get (img_buf, img_yofs, width);
+
+					out.end (height - 1 - y, img_yofs);
+				}
+
+				break;
+			}
+
+			default:
+				throw new InvalidIconDataException ("%s -> Unsupported color format! (bitCount = %d, colorCount = %d)\n", icon_name, bih.bitCount, colorCount);
+		}
+
+	}
+
+	// Decode a compressed image via ImageIO
+	private static BufferedImage readPng (String icon_name, IconReader reader, IconDirEntry ide) throws IOException
+	{
+		final InputStream bis = new ByteBufferInputStream (reader.slice (ide.imageOffset, ide.bytesInRes));
+		final BufferedImage img = ImageIO.read (bis);
+
+		if (img == null)
+			throw new IOException (icon_name + " -> Unable to decode the PNG image!");
+
+		return (img);
+	}
+
+	// The image must fill the destination exactly
+	private static void checkSize (String icon_name, Output out, int width, int height) throws InvalidIconDataException
+	{
+		if ((out.width != width) || (out.height != height))
+			throw new InvalidIconDataException ("%s -> Image size mismatch! (%dx%d, expected %dx%d)\n", icon_name, width, height, out.width, out.height);
+	}
+
+	// The BufferedImage type of a pixel format
+	private static int imageType (PixelFormat format, boolean opaque)
+	{
+		switch (format)
+		{
+			case ARGB_PRE:   return (BufferedImage.TYPE_INT_ARGB_PRE);
+			case OPAQUE_RGB: return (opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+			case ABGR:       return (BufferedImage.TYPE_4BYTE_ABGR);
+			default:         return (BufferedImage.TYPE_INT_ARGB);
+		}
+	}
+
+	// True if the bitmap has no transparent pixels (AND mask all 0, or all alpha values 255 for 32 bpp); only the mask (or alpha) bytes are read
+	private static boolean isOpaque (IconReader reader, IconImage icoimg)
+	{
+		final BitmapInfoHeader bih = icoimg.header;
+
+		final int width  = bih.width;
+		final int height = bih.height;
+
+		if (bih.bitCount == 32)
+		{
+			final ByteBuffer rows = rows (reader, icoimg.colorMapOffset, width << 2, width << 2, height);
+			final int len = rows.remaining ();
+
+			for (int i = 3; i < len; i += 4)
+			{
+				if (rows.get (i) != -1)
+					return (false);
+			}
+
+			return (true);
+		}
+
+		final int stride = IconUtils.dwordPad (width);
+		final int full   = width >> 3;
+		final int tail   = width & 7;
+
+		final ByteBuffer rows = rows (reader, icoimg.andMaskOffset, stride, IconUtils.bytePad (width), height);
+
+		for (int y = 0; y < height; y ++)
+		{
+			final int yofs = stride * y;
+
+			for (int x = 0; x < full; x ++)
+			{
+				if (rows.get (yofs + x) != 0)
+					return (false);
+			}
+
+			// Only the bits of the pixels inside the row
+			if ((tail != 0) && ((rows.get (yofs + full) & (0xFF00 >> tail)) != 0))
+				return (false);
+		}
+
+		return (true);
+	}
+
+	// True if all pixels have alpha 255
+	private static boolean isOpaque (ArgbPixels px)
+	{
+		for (int y = 0; y < px.height; y ++)
+		{
+			final int yofs = px.ofs + px.scan * y;
+
+			for (int x = 0; x < px.width; x ++)
+			{
+				if ((px.data [yofs + x] >>> 24) != 0xFF)
+					return (false);
+			}
+		}
+
+		return (true);
+	}
+
+	/**
+		Returns the size of a compressed ({@code png}) entry, reading only the {@code IHDR} chunk.
+
+		@param icon_name The name of the icon.
+		@param reader    The reader that contains the icon data.
+		@param ide       The (compressed) icon entry.
+		@return a two element array with {@code width} and {@code height}.
+		@throws InvalidIconDataException if the entry doesn't start with a valid {@code IHDR} chunk.
+	*/
+	static int [] pngSize (String icon_name, IconReader reader, IconDirEntry ide) throws InvalidIconDataException
+	{
+		return (pngSize (icon_name, reader, ide.imageOffset, ide.bytesInRes));
+	}
+
+	/**
+		Returns the size of the {@code png} image stored at the given offset, reading only the {@code IHDR} chunk.<br>
+		The chunk must be the first one, it must be whole inside the image data and the size must be positive.
+
+		@param icon_name The name of the icon.
+		@param reader    The reader that contains the icon data.
+		@param ofs       The offset of the {@code png} data (signature included).
+		@param len       The length of the {@code png} data.
+		@return a two element array with {@code width} and {@code height}.
+		@throws InvalidIconDataException if the data doesn't start with a valid {@code IHDR} chunk.
+	*/
+	static int [] pngSize (String icon_name, IconReader reader, int ofs, int len) throws InvalidIconDataException
+	{
+		// 8 bytes signature + 4 bytes chunk length + 4 bytes chunk type + 13 bytes chunk data + 4 bytes CRC
+		if ((ofs < 0) || (len < PNG_IHDR_END) || ((long) ofs + len > reader.length ()))
+			throw new InvalidIconDataException ("%s -> Truncated PNG image! (%d bytes)", icon_name, len);
+
+		// Big-endian chunk length and type ('IHDR')
+		if ((Integer.reverseBytes (reader.read_dword_le (ofs + 8)) != PNG_IHDR_LENGTH) || (reader.read_dword_le (ofs + 12) != PNG_IHDR_TYPE))
+			throw new InvalidIconDataException ("%s -> Invalid PNG header! (IHDR chunk not found)", icon_name);
+
+		// Big-endian width and height (1 to 2^31 - 1)
+		final int width  = Integer.reverseBytes (reader.read_dword_le (ofs + 16));
+		final int height = Integer.reverseBytes (reader.read_dword_le (ofs + 20));
+
+		if ((width <= 0) || (height <= 0))
+			throw new InvalidIconDataException ("%s -> Invalid PNG image size! (%dx%d)", icon_name, width & 0xFFFFFFFFL, height & 0xFFFFFFFFL);
+
+		return (new int [] { width, height });
+	}
+
+	// The rows of a bitmap ('row_bytes' used bytes every 'stride' bytes), read at once
+	private static ByteBuffer rows (IconReader reader, int ofs, int stride, int row_bytes, int height)
+	{
+		return (reader.slice (ofs, (height > 0) ? (stride * (height - 1) + row_bytes) : 0));
+	}
+
+	/**
+		The destination of the decoded rows.<br>
+		Each row is written as {@code ARGB} into {@link #buf} at the offset returned by {@link #begin begin}, then {@link #end end} stores it
+		in the destination format (in place, or into the destination buffer when {@code buf} is just a scratch row).
+	*/
+	abstract static class Output
+	{
+		/** The width of the destination. */
+		final int width;
+
+		/** The height of the destination. */
+		final int height;
+
+		/** The {@code ARGB} rows. */
+		final int buf [];
+
+		// Constructor
+		Output (int width, int height, int buf [])
+		{
+			this.width  = width;
+			this.height = height;
+			this.buf    = buf;
+		}
+
+		/**
+			Returns the offset in {@link #buf} where row {@code y} (from the top) must be written.
+			@param y The row.
+			@return the offset.
+		*/
+		abstract int begin (int y);
+
+		/**
+			Stores row {@code y}, written in {@link #buf} at {@code ofs}.
+			@param y   The row.
+			@param ofs The offset returned by {@link #begin begin}.
+		*/
+		abstract void end (int y, int ofs);
+
+		// Check that 'height' rows of 'row_len' elements, 'stride' elements apart starting at 'ofs', fit in 'len' elements
+		static void checkLayout (long len, int ofs, int stride, int row_len, int height)
+		{
+			if ((ofs < 0) || (stride < row_len) || (ofs + (long) stride * (height - 1) + row_len > len))
+				throw new IllegalArgumentException ("Invalid buffer layout: " + (row_len * height) + " elements (ofs = " + ofs + ", stride = " + stride + ", length = " + len + ")");
+		}
+	}
+
+	// A BufferedImage: int images are written in place (and converted in place), byte images through a scratch row
+	static final class ImageOutput extends Output
+	{
+		final BufferedImage image;
+
+		private final int type;
+		private final byte bytes [];
+
+		ImageOutput (BufferedImage image, DecoderContext ctx)
+		{
+			super (image.getWidth (), image.getHeight (), (image.getRaster ().getDataBuffer () instanceof DataBufferInt) ?
+				((DataBufferInt) image.getRaster ().getDataBuffer ()).getData () : ctx.argbRow (image.getWidth ()));
+
+			this.image = image;
+			this.type  = image.getType ();
+			this.bytes = (image.getRaster ().getDataBuffer () instanceof DataBufferByte) ? ((DataBufferByte) image.getRaster ().getDataBuffer ()).getData () : null;
+		}
+
+		@Override
+		int begin (int y)
+		{
+			return ((bytes == null) ? width * y : 0);
+		}
+
+		@Override
+		void end (int y, int ofs)
+		{
+			switch (type)
+			{
+				case BufferedImage.TYPE_INT_ARGB_PRE:
+				{
+					for (int x = ofs; x < ofs + width; x ++)
+					{
+						final int c = buf [x];
+						final int a = c >>> 24;
+
+						if (a == 0)
+							buf [x] = 0;
+
+						else if (a != 0xFF)
+							buf [x] = (a << 24) | (mul8 ((c >> 16) & 0xFF, a) << 16) | (mul8 ((c >> 8) & 0xFF, a) << 8) | mul8 (c & 0xFF, a);
+					}
+					break;
+				}
+
+				// Alpha is not used
+				case BufferedImage.TYPE_INT_RGB:
+				{
+					for (int x = ofs; x < ofs + width; x ++)
+						buf [x] &= 0xFFFFFF;
+
+					break;
+				}
+
+				// A, B, G, R bytes
+				case BufferedImage.TYPE_4BYTE_ABGR:
+				{
+					for (int x = 0, d = (width * y) << 2; x < width; x ++, d += 4)
+					{
+						final int c = buf [ofs + x];
+
+						bytes [d]     = (byte) (c >>> 24);
+						bytes [d + 1] = (byte) c;
+						bytes [d + 2] = (byte) (c >> 8);
+						bytes [d + 3] = (byte) (c >> 16);
+					}
+					break;
+				}
+
+				default:
+					break;
+			}
+		}
+
+		// Round (c * a / 255)
+		private static int mul8 (int c, int a)
+		{
+			final int t = c * a + 128;
+			return ((t + (t >> 8)) >> 8);
+		}
+	}
+
+	// An int array: ARGB rows are written in place
+	static final class IntArrayOutput extends Output
+	{
+		private final int ofs;
+		private final int stride;
+
+		IntArrayOutput (int dest [], int ofs, int stride, int width, int height)
+		{
+			super (width, height, dest);
+			checkLayout (dest.length, ofs, stride, width, height);
+
+			this.ofs    = ofs;
+			this.stride = stride;
+		}
+
+		@Override
+		int begin (int y)
+		{
+			return (ofs + stride * y);
+		}
+
+		@Override
+		void end (int y, int ofs)
+		{
+		}
+	}
+
+	// An IntBuffer without array (e.g. a view of a direct buffer): ARGB rows are copied from a scratch row
+	static final class IntBufferOutput extends Output
+	{
+		private final IntBuffer dest;
+		private final int ofs;
+		private final int stride;
+
+		IntBufferOutput (IntBuffer dest, int ofs, int stride, int width, int height, DecoderContext ctx)
+		{
+			super (width, height, ctx.argbRow (width));
+			checkLayout (dest.limit (), ofs, stride, width, height);
+
+			// Never touch the position of the caller's buffer
+			this.dest   = dest.duplicate ();
+			this.ofs    = ofs;
+			this.stride = stride;
+		}
+
+		@Override
+		int begin (int y)
+		{
+			return (0);
+		}
+
+		@Override
+		void end (int y, int ofs)
+		{
+			dest.position (this.ofs + stride * y);
+			dest.put (buf, ofs, width);
+		}
+	}
+
+	// A ByteBuffer (heap or direct) with 4 bytes per pixel (RGBA or BGRA): rows are converted from a scratch row and copied at once
+	static final class ByteBufferOutput extends Output
+	{
+		private final ByteBuffer dest;
+		private final boolean bgra;
+		private final byte row [];
+		private final int ofs;
+		private final int stride;
+
+		ByteBufferOutput (ByteBuffer dest, int ofs, int stride, ComponentOrder order, int width, int height, DecoderContext ctx)
+		{
+			super (width, height, ctx.argbRow (width));
+			checkLayout (dest.limit (), ofs, stride, width << 2, height);
+
+			// Never touch the position of the caller's buffer
+			this.dest   = dest.duplicate ();
+			this.bgra   = (order == ComponentOrder.BGRA);
+			this.row    = ctx.outRow (width << 2);
+			this.ofs    = ofs;
+			this.stride = stride;
+		}
+
+		@Override
+		int begin (int y)
+		{
+			return (0);
+		}
+
+		@Override
+		void end (int y, int ofs)
+		{
+			if (bgra)
+			{
+				for (int x = 0, d = 0; x < width; x ++, d += 4)
+				{
+					final int c = buf [ofs + x];
+
+					row [d]     = (byte) c;
+					row [d + 1] = (byte) (c >> 8);
+					row [d + 2] = (byte) (c >> 16);
+					row [d + 3] = (byte) (c >>> 24);
+				}
+			}
+			else
+			{
+				for (int x = 0, d = 0; x < width; x ++, d += 4)
+				{
+					final int c = buf [ofs + x];
+
+					row [d]     = (byte) (c >> 16);
+					row [d + 1] = (byte) (c >> 8);
+					row [d + 2] = (byte) c;
+					row [d + 3] = (byte) (c >>> 24);
+				}
+			}
+
+			dest.position (this.ofs + stride * y);
+			dest.put (row, 0, width << 2);
+		}
+	}
+
+	// The AND mask of a bitmap (1 bit per pixel: 0 = opaque, 1 = transparent), applied one row at a time
+	private static final class AndMask
+	{
+		private final static int OPAQUE = 0xFF << 24;
+
+		private final ByteBuffer rows;
+		private final byte row [];
+		private final int row_len;
+		private final int stride;
+		private final int width;
+
+		AndMask (IconReader reader, int andMaskOffset, int width, int height, DecoderContext ctx)
+		{
+			this.stride = IconUtils.dwordPad (width);
+			this.width  = width;
+
+			// Pad width to the nearest byte (Round up)
+			row_len = IconUtils.bytePad (width);
+			row     = ctx.maskRow (row_len);
+			rows    = rows (reader, andMaskOffset, stride, row_len, height);
+		}
+
+		// Apply the mask of row 'y' to the image row at 'img_ofs', 32 pixels at a time
+		void apply (int y, int img_buf [], int img_ofs)
+		{
+			rows.position (stride * y);
+			rows.get (row, 0, row_len);
+
+			final int full = width >> 5;
+			final int tail = width & 31;
+
+			for (int w = 0; w < full; w ++, img_ofs += 32)
+			{
+				final int i = w << 2;
+				final int bits = ((row [i] & 0xFF) << 24) | ((row [i + 1] & 0xFF) << 16) | ((row [i + 2] & 0xFF) << 8) | (row [i + 3] & 0xFF);
+
+				// All transparent: nothing to do
+				if (bits == -1)
+					continue;
+
+				// All opaque
+				if (bits == 0)
+				{
+					for (int k = 0; k < 32; k ++)
+						img_buf [img_ofs + k] |= OPAQUE;
+				}
+
+				// Mixed (the leftmost pixel is the most significant bit)
+				else
+				{
+					for (int k = 0; k < 32; k ++)
+						img_buf [img_ofs + k] |= ~((bits << k) >> 31) & OPAQUE;
+				}
+			}
+
+			// Tail
+			if (tail != 0)
+			{
+				final int bits = tailWord (full << 2);
+
+				for (int k = 0; k < tail; k ++)
+					img_buf [img_ofs + k] |= ~((bits << k) >> 31) & OPAQUE;
+			}
+		}
+
+		// The last (partial) 32 mask bits, starting at byte 'i'; bytes past the row are 0
+		private int tailWord (int i)
+		{
+			int bits = 0;
+
+			for (int k = 0; k < 4; k ++)
+				bits = (bits << 8) | (((i + k) < row_len) ? (row [i + k] & 0xFF) : 0);
+
+			return (bits);
+		}
+	}
+}
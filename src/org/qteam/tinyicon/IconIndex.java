@@ -0,0 +1,247 @@
+package org.qteam.tinyicon;
+
+import java.util.*;
+
+/**
+	A size index over the {@link Icon icons} of a {@link TinyIcon}.<br>
+	The index is built once, when the icon is parsed, and it only relies on the icon information (size and bits per pixel), so
+	no query re-sorts the icons list or decodes any image. The index is not affected by {@link TinyIcon#sortIcons(IconSort, IconSort) sortIcons}.
+
+	<p>Icons with the same size are grouped; within a group, icons are ordered by bits per pixel (from bigger to smaller) and then
+	by their order in the {@code .ico} file. When two sizes are both candidates, the one with the smaller area wins
+	for larger sizes and the one with the bigger area wins for smaller sizes.
+
+	<p>Example:
+	<blockquote>
+		{@code final IconIndex idx = new TinyIcon ("myicon.ico").getIndex ();}<br>
+		{@code // The best icon to render at 24x24 (a 32x32 icon if there isn't a 24x24 one)}<br>
+		{@code final Icon ico = idx.getBest (24, 24, 32);}
+	</blockquote>
+*/
+public final class IconIndex
+{
+	// Icons grouped by size, ordered by area (then width)
+	private final int widths [];
+	private final int heights [];
+	private final long areas [];
+	private final Icon groups [][];
+
+	// Constructor
+	IconIndex (List <Icon> icons)
+	{
+		final TreeMap <Long, ArrayList <Icon>> bySize = new TreeMap
+		(
+			Comparator.comparingLong ((Long k) -> ((k >>> 32) * (k & 0xFFFFFFFFL))).thenComparingLong (k -> k)
+		);
+
+		for (Icon icon : icons)
+			bySize.computeIfAbsent (sizeKey (icon.getWidth (), icon.getHeight ()), k -> new ArrayList ()).add (icon);
+
+		final int n = bySize.size ();
+
+		widths  = new int [n];
+		heights = new int [n];
+		areas   = new long [n];
+		groups  = new Icon [n][];
+
+		int x = 0;
+
+		for (Map.Entry <Long, ArrayList <Icon>> e : bySize.entrySet ())
+		{
+			final ArrayList <Icon> group = e.getValue ();
+
+			// Stable sort: same bpp keeps the file order
+			group.sort (Comparator.comparing (Icon :: getBpp).reversed ());
+
+			widths  [x] = (int) (e.getKey () >>> 32);
+			heights [x] = (int) (e.getKey () & 0xFFFFFFFFL);
+			areas   [x] = (long) widths [x] * heights [x];
+			groups  [x] = group.toArray (new Icon [group.size ()]);
+
+			x ++;
+		}
+	}
+
+	/**
+		Returns the icon with exactly the given size (the one with more bits per pixel if there are several).
+
+		@param width  The wanted width.
+		@param height The wanted height.
+		@return the matching {@link Icon} or {@code null} if there isn't an icon with the given size.
+	*/
+	public Icon getExact (int width, int height)
+	{
+		final int g = findExact (width, height);
+		return ((g < 0) ? null : groups [g][0]);
+	}
+
+	/**
+		Returns the smallest icon which is at least as big as the given size (both width and height).<br>
+		An icon with exactly the given size is returned, if present.
+
+		@param width  The wanted width.
+		@param height The wanted height.
+		@return the nearest larger {@link Icon} (the one with more bits per pixel if there are several) or {@code null} if all icons are smaller.
+	*/
+	public Icon getNearestLarger (int width, int height)
+	{
+		final int g = findLarger (width, height);
+		return ((g < 0) ? null : groups [g][0]);
+	}
+
+	/**
+		Returns the biggest icon which is at most as big as the given size (both width and height).<br>
+		An icon with exactly the given size is returned, if present.
+
+		@param width  The wanted width.
+		@param height The wanted height.
+		@return the nearest smaller {@link Icon} (the one with more bits per pixel if there are several) or {@code null} if all icons are bigger.
+	*/
+	public Icon getNearestSmaller (int width, int height)
+	{
+		final int g = findSmaller (width, height);
+		return ((g < 0) ? null : groups [g][0]);
+	}
+
+	/**
+		Returns the best icon to render at the given size and color depth.<br>
+		The size is chosen first: the exact size, otherwise the nearest larger one (downscaling looks better), otherwise the nearest smaller one.
+		Then, within that size, the icon with the wanted bits per pixel is returned; if missing, the one with the most bits per pixel below
+		the wanted value, otherwise the one with the fewest bits per pixel above it.
+
+		@param width  The wanted width.
+		@param height The wanted height.
+		@param bpp    The wanted bits per pixel.
+		@return the best {@link Icon} or {@code null} if the icon is empty.
+	*/
+	public Icon getBest (int width, int height, int bpp)
+	{
+		int g = findExact (width, height);
+
+		if (g < 0)
+			g = findLarger (width, height);
+
+		if (g < 0)
+			g = findSmaller (width, height);
+
+		if (g < 0)
+			return (null);
+
+		// Group is ordered by bpp (descending)
+		final Icon group [] = groups [g];
+		Icon above = null;
+
+		for (Icon icon : group)
+		{
+			if (icon.getBpp () <= bpp)
+				return (icon);
+
+			above = icon;
+		}
+
+		return (above);
+	}
+
+	/**
+		Returns all icons with the given size, ordered by bits per pixel (from bigger to smaller).
+
+		@param width  The wanted width.
+		@param height The wanted height.
+		@return a new list with the matching icons (possibly empty).
+	*/
+	public List <Icon> getAll (int width, int height)
+	{
+		final int g = findExact (width, height);
+		return ((g < 0) ? new ArrayList () : new ArrayList (Arrays.asList (groups [g])));
+	}
+
+	/**
+		Returns the number of distinct sizes.
+		@return the number of distinct sizes.
+	*/
+	public int getNumOfSizes ()
+	{
+		return (groups.length);
+	}
+
+	private int findExact (int width, int height)
+	{
+		final long area = (long) width * height;
+
+		for (int g = lowerBound (area); (g < groups.length) && (areas [g] == area); g ++)
+		{
+			if ((widths [g] == width) && (heights [g] == height))
+				return (g);
+		}
+
+		return (-1);
+	}
+
+	private int findLarger (int width, int height)
+	{
+		for (int g = lowerBound ((long) width * height); g < groups.length; g ++)
+		{
+			if ((widths [g] >= width) && (heights [g] >= height))
+				return (g);
+		}
+
+		return (-1);
+	}
+
+	private int findSmaller (int width, int height)
+	{
+		for (int g = lowerBound ((long) width * height + 1) - 1; g >= 0; g --)
+		{
+			if ((widths [g] <= width) && (heights [g] <= height))
+				return (g);
+		}
+
+		return (-1);
+	}
+
+	// First group with an area >= 'area'
+	private int lowerBound (long area)
+	{
+		int lo = 0;
+		int hi = groups.length;
+
+		while (lo < hi)
+		{
+			final int mid = (lo + hi) >>> 1;
+
+			if (areas [mid] < area)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		return (lo);
+	}
+
+	private static long sizeKey (int width, int height)
+	{
+		return (((long) width << 32) | (height & 0xFFFFFFFFL));
+	}
+
+	/**
+		Returns a string summarizing the state of this {@code IconIndex}.
+		@return a summary string.
+	*/
+	@Override
+	public String toString ()
+	{
+		final StringBuilder sb = new StringBuilder ();
+
+		for (int g = 0; g < groups.length; g ++)
+		{
+			sb.append (widths [g]).append ("x").append (heights [g]).append (" ->");
+
+			for (Icon icon : groups [g])
+				sb.append (" ").append (icon.getBpp ()).append (icon.isPng () ? "bpp (png)" : "bpp");
+
+			sb.append ("\n");
+		}
+
+		return (sb.toString ());
+	}
+}
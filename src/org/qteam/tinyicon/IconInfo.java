@@ -0,0 +1,112 @@
+package org.qteam.tinyicon;
+
+/**
+	The information of a single icon entry, as returned by {@link IconProbe}: size, bits per pixel, compression and
+	where the image data is stored in the {@code .ico} file. No pixel data is read to build it.
+*/
+public final class IconInfo
+{
+	private final int index;
+	private final int width;
+	private final int height;
+	private final int bpp;
+	private final boolean isPng;
+	private final int size;
+	private final int offset;
+
+	// Constructor
+	IconInfo (int index, int width, int height, int bpp, boolean isPng, int size, int offset)
+	{
+		this.index  = index;
+		this.width  = width;
+		this.height = height;
+		this.bpp    = bpp;
+		this.isPng  = isPng;
+		this.size   = size;
+		this.offset = offset;
+	}
+
+	/**
+		Returns the index of the entry in the {@code .ico} file.
+		@return the index of the entry.
+	*/
+	public int getIndex ()
+	{
+		return (index);
+	}
+
+	/**
+		Returns the width of the image (from the image header, so sizes of 256 pixels or more are exact).
+		@return the width in pixels.
+	*/
+	public int getWidth ()
+	{
+		return (width);
+	}
+
+	/**
+		Returns the height of the image (from the image header, so sizes of 256 pixels or more are exact).
+		@return the height in pixels.
+	*/
+	public int getHeight ()
+	{
+		return (height);
+	}
+
+	/**
+		Returns the bits per pixel of the image.<br>
+		For compressed ({@code png}) images this is the value of the icon entry or, if it is 0, the one of the {@code png} header.
+		@return the bits per pixel.
+	*/
+	public int getBpp ()
+	{
+		return (bpp);
+	}
+
+	/**
+		Returns the compression of the image.
+		@return {@code true} if the image is compressed ({@code png}), {@code false} otherwise.
+	*/
+	public boolean isPng ()
+	{
+		return (isPng);
+	}
+
+	/**
+		Returns the size of the image data.
+		@return the size in bytes.
+	*/
+	public int getSize ()
+	{
+		return (size);
+	}
+
+	/**
+		Returns the offset of the image data in the {@code .ico} file.
+		@return the offset in bytes.
+	*/
+	public int getOffset ()
+	{
+		return (offset);
+	}
+
+	/**
+		Returns a string summarizing the state of this {@code IconInfo}.
+		@return A summary string.
+	*/
+	@Override
+	public String toString ()
+	{
+		final StringBuilder sb = new StringBuilder ();
+
+		sb.append ("index  = ").append (index ).append ("\n");
+		sb.append ("width  = ").append (width ).append ("\n");
+		sb.append ("height = ").append (height).append ("\n");
+		sb.append ("bpp    = ").append (bpp   ).append ("\n");
+		sb.append ("isPng  = ").append (isPng ).append ("\n");
+		sb.append ("size   = ").append (size  ).append ("\n");
+		sb.append ("offset = ").append (offset).append ("\n");
+
+		return (sb.toString ());
+	}
+}
@@ -0,0 +1,198 @@
+package org.qteam.tinyicon;
+
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.nio.*;
+import java.io.*;
+
+/**
+	A metadata-only reader of {@code .ico} files.<br>
+	Unlike {@link TinyIcon}, which prepares every entry for decoding (e.g. bitmap palettes), {@code IconProbe} reads only the icon directory
+	and the header of each image: the {@code BITMAPINFOHEADER} of bitmaps and the {@code IHDR} chunk of compressed ({@code png}) images.
+	No palette is built and no pixel data is read, so it is suitable for listing a large number of icons (e.g. a catalog indexer).
+
+	<p>Example:
+	<blockquote>
+		{@code for (IconInfo info : IconProbe.probe (Paths.get ("myicon.ico")))}<br>
+		&nbsp;&nbsp;&nbsp;&nbsp;{@code System.out.println (info.getWidth () + "x" + info.getHeight () + " @ " + info.getBpp ());}
+	</blockquote>
+*/
+public final class IconProbe
+{
+	// Offset and size of ICONDIRENTRY
+	private final static int ICONDIRENTRY_START_OFS = 6;
+	private final static int ICONDIRENTRY_SIZE      = 16;
+
+	// The smallest valid icon (See IconDir)
+	private final static int MIN_ICON_FILE_SIZE = 78;
+
+	// First and second part of the PNG signature (little-endian)
+	private final static int PNG_SIGNATURE_1 = 0x474E5089;
+	private final static int PNG_SIGNATURE_2 = 0x0A1A0A0D;
+
+	// BITMAPINFOHEADER size
+	private final static int BIH_SIZE = 0x28;
+
+	// Constructor
+	private IconProbe ()
+	{
+	}
+
+	/**
+		Reads the information of all entries of the given {@code .ico} file.<br>
+		Only the headers are read from the file (a few small positioned reads), not the whole file.
+
+		@param path The path of the file.
+		@return the information of each entry, in file order.
+
+		@throws IOException              if an I/O exception occurs during reading the file.
+		@throws InvalidIconException     if the file is an invalid icon.
+		@throws InvalidIconDataException if an entry has an invalid image header.
+	*/
+	public static ArrayList <IconInfo> probe (Path path) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		try (final FileChannel fc = FileChannel.open (path, StandardOpenOption.READ))
+		{
+			return (probe (fc, path.getFileName ().toString ()));
+		}
+	}
+
+	/**
+		Reads the information of all entries of the {@code .ico} data in the given channel (the channel is not closed).
+
+		@param channel   The channel that contains the icon data.
+		@param icon_name The name of the icon (used in error messages).
+		@return the information of each entry, in file order.
+
+		@throws IOException              if an I/O exception occurs during reading the channel.
+		@throws InvalidIconException     if the data is an invalid icon.
+		@throws InvalidIconDataException if an entry has an invalid image header.
+	*/
+	public static ArrayList <IconInfo> probe (SeekableByteChannel channel, String icon_name) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		try
+		{
+			return (probe (new ChannelReader (channel), icon_name));
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause ();
+		}
+	}
+
+	/**
+		Reads the information of all entries of the given {@code .ico} data.
+
+		@param buf The icon data.
+		@return the information of each entry, in file order.
+
+		@throws InvalidIconException     if the data is an invalid icon.
+		@throws InvalidIconDataException if an entry has an invalid image header.
+	*/
+	public static ArrayList <IconInfo> probe (byte buf []) throws InvalidIconException, InvalidIconDataException
+	{
+		return (probe (IconReader.wrap (buf), "Unknown"));
+	}
+
+	/**
+		Reads the information of all entries of the given {@code .ico} data (from the position to the limit of the buffer).
+
+		@param buf The icon data.
+		@return the information of each entry, in file order.
+
+		@throws InvalidIconException     if the data is an invalid icon.
+		@throws InvalidIconDataException if an entry has an invalid image header.
+	*/
+	public static ArrayList <IconInfo> probe (ByteBuffer buf) throws InvalidIconException, InvalidIconDataException
+	{
+		return (probe (IconReader.wrap (buf), "Unknown"));
+	}
+
+	/**
+		Reads the information of all entries of the {@code .ico} data in the given reader.
+
+		@param reader    The reader that contains the icon data.
+		@param icon_name The name of the icon (used in error messages).
+		@return the information of each entry, in file order.
+
+		@throws InvalidIconException     if the data is an invalid icon.
+		@throws InvalidIconDataException if an entry has an invalid image header.
+	*/
+	public static ArrayList <IconInfo> probe (IconReader reader, String icon_name) throws InvalidIconException, InvalidIconDataException
+	{
+		// Same checks of IconDir
+		if (reader.length () < MIN_ICON_FILE_SIZE)
+			throw new InvalidIconException ("%s -> Invalid icon file", icon_name);
+
+		final int reserved = reader.read_word_le (0);
+		final int type     = reader.read_word_le (2);
+		final int count    = reader.read_word_le (4);
+
+		if ((reserved != 0x00) || (type != 0x01) || (count <= 0))
+			throw new InvalidIconException ("%s -> Invalid icon file", icon_name);
+
+		final ArrayList <IconInfo> infos = new ArrayList (count);
+
+		for (int n = 0; n < count; n ++)
+		{
+			final int ofs = ICONDIRENTRY_START_OFS + (n * ICONDIRENTRY_SIZE);
+
+			final int bitCount    = reader.read_word_le  (ofs + 6);
+			final int bytesInRes  = reader.read_dword_le (ofs + 8);
+			final int imageOffset = reader.read_dword_le (ofs + 12);
+
+			final int header = reader.read_dword_le (imageOffset);
+
+			// BITMAPINFOHEADER: width, height (XOR + AND bitmaps) and bits per pixel
+			if (header == BIH_SIZE)
+			{
+				final int width  = reader.read_dword_le (imageOffset + 4);
+				final int height = reader.read_dword_le (imageOffset + 8) >> 1;
+				final int bpp    = reader.read_word_le  (imageOffset + 14);
+
+				infos.add (new IconInfo (n, width, height, bpp, false, bytesInRes, imageOffset));
+			}
+
+			// PNG: 8 bytes signature + IHDR chunk (length, type, then big-endian width and height, bit depth and color type), validated as TinyIcon does
+			else if (header == PNG_SIGNATURE_1)
+			{
+				if (reader.read_dword_le (imageOffset + 4) != PNG_SIGNATURE_2)
+					throw new InvalidIconDataException ("%s -> Invalid PNG signature!", icon_name);
+
+				final int size [] = IconDecoder.pngSize (icon_name, reader, imageOffset, bytesInRes);
+				final int bpp    = (bitCount != 0) ? bitCount : pngBpp (reader.read_byte (imageOffset + 24), reader.read_byte (imageOffset + 25));
+
+				infos.add (new IconInfo (n, size [0], size [1], bpp, true, bytesInRes, imageOffset));
+			}
+
+			else
+				throw new InvalidIconDataException ("%s -> Invalid header format! Header must be 'PNG' or 'BITMAPINFOHEADER'.", icon_name);
+		}
+
+		return (infos);
+	}
+
+	// Bits per pixel of a png image (bit depth * number of channels of the color type)
+	private static int pngBpp (int bit_depth, int color_type)
+	{
+		switch (color_type)
+		{
+			// Grayscale + alpha
+			case 4:
+				return (bit_depth << 1);
+
+			// RGB
+			case 2:
+				return (bit_depth * 3);
+
+			// RGBA
+			case 6:
+				return (bit_depth << 2);
+
+			// Grayscale, palette
+			default:
+				return (bit_depth);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package org.qteam.tinyicon;
+
+import java.nio.*;
+
+/**
+	A random access, little-endian reader over the raw icon data.<br>
+	All icon structures (See {@link org.qteam.tinyicon.structs structs} package) and decoders read the icon through this
+	abstraction, so the same parsing code works in place on {@code byte arrays}, heap, direct or memory-mapped {@link ByteBuffer buffers}.
+
+	<p>All reads are absolute; offsets are relative to the beginning of the icon data (the {@code ICONDIR} header).
+*/
+public interface IconReader
+{
+	/**
+		Returns the size of the icon data.
+		@return the number of bytes that can be read.
+	*/
+	int length ();
+
+	/**
+		Reads a byte at the given offset.
+
+		@param ofs The offset where start to read.
+		@return an unsigned byte.
+	*/
+	int read_byte (int ofs);
+
+	/**
+		Reads two bytes at the given offset.
+
+		@param ofs The offset where start to read.
+		@return a little-endian unsigned word (2 bytes).
+	*/
+	int read_word_le (int ofs);
+
+	/**
+		Reads four bytes at the given offset.
+
+		@param ofs The offset where start to read.
+		@return a little-endian unsigned dword (4 bytes).
+	*/
+	int read_dword_le (int ofs);
+
+	/**
+		Returns a {@link ByteOrder#LITTLE_ENDIAN little-endian} view of the specified region.<br>
+		The returned buffer starts at index 0 and its content is shared with the reader whenever possible (no copy).
+
+		@param ofs The offset where the region starts.
+		@param len The length of the region in bytes.
+		@return a buffer containing the requested region.
+		@throws IndexOutOfBoundsException if the region is out of range.
+	*/
+	ByteBuffer slice (int ofs, int len);
+
+	/**
+		Hints that the specified region is about to be read.<br>
+		Readers which are not fully in memory (e.g. channel based) can use this hint to load the whole region at once;
+		the default implementation does nothing.
+
+		@param ofs The offset where the region starts.
+		@param len The length of the region in bytes.
+	*/
+	default void prefetch (int ofs, int len)
+	{
+	}
+
+	/**
+		Creates a reader that works in place on the whole {@code byte array}.
+
+		@param buf The buffer that contains the icon data.
+		@return a new {@code IconReader}.
+	*/
+	static IconReader wrap (byte buf [])
+	{
+		return (wrap (buf, 0, buf.length));
+	}
+
+	/**
+		Creates a reader that works in place on a region of the given {@code byte array}.
+
+		@param buf The buffer that contains the icon data.
+		@param ofs The offset in the buffer where the icon data starts.
+		@param len The length of the icon data.
+		@return a new {@code IconReader}.
+		@throws IndexOutOfBoundsException if the region is out of range.
+	*/
+	static IconReader wrap (byte buf [], int ofs, int len)
+	{
+		return (new ByteBufferReader (ByteBuffer.wrap (buf, ofs, len).slice ()));
+	}
+
+	/**
+		Creates a reader that works in place on the remaining bytes of the given buffer.<br>
+		The buffer can be a heap, a direct or a memory-mapped one; its position, limit and byte order are not changed.
+
+		@param buf The buffer that contains the icon data (from its current position up to its limit).
+		@return a new {@code IconReader}.
+	*/
+	static IconReader wrap (ByteBuffer buf)
+	{
+		return (new ByteBufferReader (buf.slice ()));
+	}
+}
@@ -0,0 +1,130 @@
+package org.qteam.tinyicon;
+
+import java.awt.image.*;
+
+/**
+	An area-averaging (box filter) image scaler, used to render icons at sizes not stored in the {@code .ico} file.<br>
+	Each destination pixel is the average of the source area it covers, weighted by the exact overlap of each source pixel
+	(integer weights, no rounding drift); colors are averaged with premultiplied alpha, so transparent pixels don't darken the edges.
+	Works for both downscaling and upscaling, and writes straight into the pixels of the destination image.
+*/
+final class IconScaler
+{
+	// Constructor
+	private IconScaler ()
+	{
+	}
+
+	// The source pixels covered by each destination pixel along one axis
+	private static final class Axis
+	{
+		final int start [];
+		final int weights [][];
+		final int total;
+
+		// 'n' source pixels -> 'm' destination pixels (each destination pixel covers 'n' units, each source pixel 'm' units)
+		Axis (int n, int m)
+		{
+			start   = new int [m];
+			weights = new int [m][];
+			total   = n;
+
+			for (int i = 0; i < m; i ++)
+			{
+				final long lo = (long) i * n;
+				final long hi = lo + n;
+
+				final int first = (int) (lo / m);
+				final int last  = (int) ((hi - 1) / m);
+
+				start   [i] = first;
+				weights [i] = new int [last - first + 1];
+
+				for (int j = first; j <= last; j ++)
+					weights [i][j - first] = (int) (Math.min (hi, (long) (j + 1) * m) - Math.max (lo, (long) j * m));
+			}
+		}
+	}
+
+	/**
+		Scales the given image.<br>
+		If the image already has the given size, its pixels are copied as they are (transparent pixels keep their colors).
+
+		@param img    The source image.
+		@param width  The width of the new image.
+		@param height The height of the new image.
+		@return a new {@link BufferedImage#TYPE_INT_ARGB TYPE_INT_ARGB} image.
+		@throws IllegalArgumentException if the size is invalid.
+	*/
+	static BufferedImage scale (BufferedImage img, int width, int height)
+	{
+		if ((width <= 0) || (height <= 0))
+			throw new IllegalArgumentException ("Invalid image size: " + width + "x" + height);
+
+		final ArgbPixels src = ArgbPixels.of (img);
+		final BufferedImage dest = new BufferedImage (width, height, BufferedImage.TYPE_INT_ARGB);
+		final int dst [] = ((DataBufferInt) dest.getRaster ().getDataBuffer ()).getData ();
+
+		if ((src.width == width) && (src.height == height))
+		{
+			for (int y = 0; y < height; y ++)
+				System.arraycopy (src.data, src.ofs + y * src.scan, dst, y * width, width);
+
+			return (dest);
+		}
+
+		final Axis ax = new Axis (src.width, width);
+		final Axis ay = (src.width == src.height) && (width == height) ? ax : new Axis (src.height, height);
+
+		final long total = (long) ax.total * ay.total;
+
+		for (int y = 0; y < height; y ++)
+		{
+			final int wy [] = ay.weights [y];
+			final int sy0   = ay.start [y];
+
+			for (int x = 0; x < width; x ++)
+			{
+				final int wx [] = ax.weights [x];
+				final int sx0   = ax.start [x];
+
+				long sa = 0;
+				long sr = 0;
+				long sg = 0;
+				long sb = 0;
+
+				for (int j = 0; j < wy.length; j ++)
+				{
+					final int row = src.ofs + (sy0 + j) * src.scan + sx0;
+
+					for (int i = 0; i < wx.length; i ++)
+					{
+						final int c = src.data [row + i];
+						final long aw = (long) (c >>> 24) * wy [j] * wx [i];
+
+						sa += aw;
+						sr += ((c >> 16) & 0xFF) * aw;
+						sg += ((c >> 8) & 0xFF) * aw;
+						sb += (c & 0xFF) * aw;
+					}
+				}
+
+				if (sa == 0)
+				{
+					dst [y * width + x] = 0;
+					continue;
+				}
+
+				// Back to straight (not premultiplied) colors, rounded
+				final int a = (int) ((sa + (total >> 1)) / total);
+				final int r = (int) ((sr + (sa >> 1)) / sa);
+				final int g = (int) ((sg + (sa >> 1)) / sa);
+				final int b = (int) ((sb + (sa >> 1)) / sa);
+
+				dst [y * width + x] = IconUtils.MAKE_ARGB (a, r, g, b);
+			}
+		}
+
+		return (dest);
+	}
+}
@@ -0,0 +1,43 @@
+package org.qteam.tinyicon;
+
+/**
+	The data shared by all {@link Icon icons} of a {@link TinyIcon}: where the images come from and how decoded images are cached.
+*/
+final class IconSource
+{
+	/** The name of the icon. */
+	final String icon_name;
+
+	/** The reader that contains the icon data. */
+	final IconReader reader;
+
+	/** The cache of decoded images or {@code null}. */
+	volatile DecodedIconCache cache;
+
+	/** The pixel format of decoded images. */
+	volatile PixelFormat format = PixelFormat.ARGB;
+
+	// Content hash (computed on first use)
+	private volatile String hash;
+
+	// Constructor
+	IconSource (String icon_name, IconReader reader)
+	{
+		this.icon_name = icon_name;
+		this.reader    = reader;
+	}
+
+	/**
+		Returns the content hash of the whole icon data.
+		@return the {@code SHA-256} of the icon data.
+	*/
+	String getHash ()
+	{
+		String h = hash;
+
+		if (h == null)
+			hash = h = IconUtils.sha256 (reader);
+
+		return (h);
+	}
+}
@@ -0,0 +1,102 @@
+package org.qteam.tinyicon;
+
+import org.qteam.tinyicon.structs.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.nio.*;
+import java.io.*;
+
+/**
+	Writes a new {@code .ico} file made of some entries of an existing icon, copying their raw data (no decoding, no encoding).<br>
+	Only the directory is rebuilt (with the new {@link IconDirEntry#imageOffset imageOffset} values); when the source is a
+	{@link FileChannel} the entries are copied with {@link FileChannel#transferTo transferTo}, otherwise straight from the icon data.
+*/
+final class IconSubset
+{
+	// Size of ICONDIR and ICONDIRENTRY
+	private final static int ICONDIR_SIZE      = 6;
+	private final static int ICONDIRENTRY_SIZE = 16;
+
+	// Constructor
+	private IconSubset ()
+	{
+	}
+
+	/**
+		Writes a new {@code .ico} file with the given entries, in the given order.
+
+		@param reader  The reader that contains the icon data.
+		@param entries The entries to be copied.
+		@param ch      The destination channel.
+		@throws IOException if an I/O error occurs or an entry is out of the icon data.
+	*/
+	static void write (IconReader reader, List <IconDirEntry> entries, WritableByteChannel ch) throws IOException
+	{
+		final int count = entries.size ();
+		final ByteBuffer dir = ByteBuffer.allocate (ICONDIR_SIZE + ICONDIRENTRY_SIZE * count).order (ByteOrder.LITTLE_ENDIAN);
+
+		// ICONDIR
+		dir.putShort ((short) 0);
+		dir.putShort ((short) 1);
+		dir.putShort ((short) count);
+
+		// ICONDIRENTRY (same values, new offsets)
+		int ofs = dir.capacity ();
+
+		for (IconDirEntry e : entries)
+		{
+			dir.put ((byte) e.width);
+			dir.put ((byte) e.height);
+			dir.put ((byte) e.colorCount);
+			dir.put ((byte) e.reserved);
+			dir.putShort ((short) e.planes);
+			dir.putShort ((short) e.bitCount);
+			dir.putInt (e.bytesInRes);
+			dir.putInt (ofs);
+
+			ofs += e.bytesInRes;
+		}
+
+		dir.flip ();
+		writeFully (dir, ch);
+
+		// Raw entries
+		final FileChannel fc = ((reader instanceof ChannelReader) && (((ChannelReader) reader).channel () instanceof FileChannel)) ?
+			(FileChannel) ((ChannelReader) reader).channel () : null;
+
+		for (IconDirEntry e : entries)
+		{
+			if (fc != null)
+				transferFully (reader, fc, e.imageOffset, e.bytesInRes, ch);
+			else
+				writeFully (reader.slice (e.imageOffset, e.bytesInRes), ch);
+		}
+	}
+
+	private static void writeFully (ByteBuffer bb, WritableByteChannel ch) throws IOException
+	{
+		while (bb.hasRemaining ())
+			ch.write (bb);
+	}
+
+	// 'transferTo' may transfer nothing (e.g. to a non-blocking channel): the rest is then written from the reader
+	private static void transferFully (IconReader reader, FileChannel fc, int pos, int len, WritableByteChannel ch) throws IOException
+	{
+		if ((pos < 0) || (len < 0) || ((long) pos + len > fc.size ()))
+			throw new IOException ("Entry out of the icon data (offset = " + pos + ", size = " + len + ")");
+
+		while (len > 0)
+		{
+			final int n = (int) fc.transferTo (pos, len, ch);
+
+			if (n <= 0)
+			{
+				writeFully (reader.slice (pos, len), ch);
+				return;
+			}
+
+			pos += n;
+			len -= n;
+		}
+	}
+}
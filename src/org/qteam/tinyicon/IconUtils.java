@@ -4,11 +4,17 @@ import java.util.logging.*;
 import java.awt.image.*;
 import javax.imageio.*;
 import java.util.jar.*;
+import java.security.*;
+import java.util.*;
+import java.nio.*;
 import java.io.*;
 
 /** Utility methods used by {@code TinyIcon} class. */
 public final class IconUtils
 {
+	// Bytes hashed at a time by 'sha256 (IconReader)'
+	private final static int HASH_CHUNK_SIZE = 1 << 16;
+
 	// Constructor
 	private IconUtils ()
 	{
@@ -50,6 +56,45 @@ public final class IconUtils
 		return (((buf [ofs + 3] & 0xFF) << 24) | ((buf [ofs + 2] & 0xFF) << 16) | ((buf [ofs + 1] & 0xFF) << 8) | (buf [ofs] & 0xFF));
 	}
 
+	/**
+		Reads a byte from the passed buffer and at the given offset.<br>
+		The buffer position is not changed (absolute read).
+
+		@param buf The buffer that contains the icon data.
+		@param ofs The offset in the buffer where start to read.
+		@return an unsigned byte.
+	*/
+	public static int read_byte (ByteBuffer buf, int ofs)
+	{
+		return (buf.get (ofs) & 0xFF);
+	}
+
+	/**
+		Reads two bytes from the passed buffer and at the given offset.<br>
+		The buffer must be in {@link ByteOrder#LITTLE_ENDIAN little-endian} order and its position is not changed (absolute read).
+
+		@param buf The buffer that contains the icon data.
+		@param ofs The offset in the buffer where start to read.
+		@return a little-endian unsigned word (2 bytes).
+	*/
+	public static int read_word_le (ByteBuffer buf, int ofs)
+	{
+		return (buf.getShort (ofs) & 0xFFFF);
+	}
+
+	/**
+		Reads four bytes from the passed buffer and at the given offset.<br>
+		The buffer must be in {@link ByteOrder#LITTLE_ENDIAN little-endian} order and its position is not changed (absolute read).
+
+		@param buf The buffer that contains the icon data.
+		@param ofs The offset in the buffer where start to read.
+		@return a little-endian unsigned dword (4 bytes).
+	*/
+	public static int read_dword_le (ByteBuffer buf, int ofs)
+	{
+		return (buf.getInt (ofs));
+	}
+
 	/**
 		Pads the given value to the nearest dword (Round up).
 
@@ -96,6 +141,143 @@ public final class IconUtils
 		return (baos.toByteArray ());
 	}
 
+	/**
+		Converts the given {@link BufferedImage} to a {@code byte array} containing {@code png} data, using the given encoder.
+
+		@param img     the {@link BufferedImage} to be converted.
+		@param encoder the {@link PngEncoder} to be used or {@code null} to use {@link ImageIO#write ImageIO.write}.
+		@return the {@code png} data or {@code null} if an error occurs.
+	*/
+	public static byte [] imgToPngBytes (BufferedImage img, PngEncoder encoder)
+	{
+		if (encoder == null)
+			return (imgToPngBytes (img));
+
+		try
+		{
+			return (encoder.encode (img));
+		}
+		catch (RuntimeException e)
+		{
+			Logger.getLogger (IconUtils.class.getName ()).log (Level.SEVERE, null, e);
+			return (null);
+		}
+	}
+
+	/**
+		Reads the given {@link InputStream} until its end (the stream is not closed).<br>
+		The data is read into a single array sized from {@code size_hint}; when the hint is exact (e.g. an HTTP {@code Content-Length}) no
+		other array is allocated and, in any case, the returned reader wraps the array without a final trimming copy.
+
+		@param is        the {@link InputStream} to be read.
+		@param size_hint the expected number of bytes (or a value {@literal <=} 0 if unknown).
+		@return an {@link IconReader} over the read data.
+		@throws IOException if an I/O error occurs.
+	*/
+	public static IconReader readFully (InputStream is, int size_hint) throws IOException
+	{
+		return (readFully (is, size_hint, Integer.MAX_VALUE));
+	}
+
+	/**
+		Reads the given {@link InputStream} until its end (the stream is not closed), failing when it holds more than {@code max_size} bytes
+		(See {@link #readFully(InputStream, int) readFully (InputStream, int)}).<br>
+		The array never grows beyond {@code max_size}, so an endless or hostile stream can't exhaust the memory.
+
+		@param is        the {@link InputStream} to be read.
+		@param size_hint the expected number of bytes (or a value {@literal <=} 0 if unknown).
+		@param max_size  the maximum number of bytes.
+		@return an {@link IconReader} over the read data.
+		@throws IOException if an I/O error occurs or the stream holds more than {@code max_size} bytes.
+	*/
+	public static IconReader readFully (InputStream is, int size_hint, int max_size) throws IOException
+	{
+		byte tmp [] = new byte [Math.min ((size_hint > 0) ? size_hint : 4096, max_size)];
+		int len = 0;
+
+		while (true)
+		{
+			// Buffer full: probe for the end of the stream before growing
+			if (len == tmp.length)
+			{
+				final int b = is.read ();
+
+				if (b < 0)
+					break;
+
+				if (len >= max_size)
+					throw new IOException ("Data too large (more than " + max_size + " bytes)");
+
+				tmp = Arrays.copyOf (tmp, (int) Math.min (Math.max ((long) tmp.length << 1, 4096), max_size));
+				tmp [len ++] = (byte) b;
+			}
+
+			final int nBytes = is.read (tmp, len, tmp.length - len);
+
+			if (nBytes < 0)
+				break;
+
+			len += nBytes;
+		}
+
+		return (IconReader.wrap (tmp, 0, len));
+	}
+
+	/**
+		Computes the {@code SHA-256} digest of the remaining bytes of the given buffer (its position is not changed).
+
+		@param bb the data to be hashed.
+		@return the digest as a lowercase hexadecimal string.
+	*/
+	public static String sha256 (ByteBuffer bb)
+	{
+		final MessageDigest md = sha256 ();
+
+		md.update (bb.duplicate ());
+		return (hex (md.digest ()));
+	}
+
+	/**
+		Computes the {@code SHA-256} digest of all the data of the given reader, one chunk at a time: readers that load their
+		data on demand (e.g. from a channel) never hold the whole data for this.
+
+		@param reader the data to be hashed.
+		@return the digest as a lowercase hexadecimal string.
+	*/
+	static String sha256 (IconReader reader)
+	{
+		final MessageDigest md = sha256 ();
+		final int length = reader.length ();
+
+		for (int ofs = 0; ofs < length; ofs += HASH_CHUNK_SIZE)
+			md.update (reader.slice (ofs, Math.min (HASH_CHUNK_SIZE, length - ofs)));
+
+		return (hex (md.digest ()));
+	}
+
+	private static MessageDigest sha256 ()
+	{
+		try
+		{
+			return (MessageDigest.getInstance ("SHA-256"));
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// This should not happen (SHA-256 is available on every Java platform)
+			throw new IllegalStateException (e);
+		}
+	}
+
+	private static String hex (byte digest [])
+	{
+		final StringBuilder sb = new StringBuilder ();
+
+		for (byte b : digest)
+			sb.append (String.format ("%02x", b));
+
+		return (sb.toString ());
+	}
+
 	/**
 		Closes the passed {@link InputStream}.
 
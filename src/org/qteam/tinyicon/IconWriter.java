@@ -0,0 +1,307 @@
+package org.qteam.tinyicon;
+
+import java.util.concurrent.*;
+import java.nio.channels.*;
+import java.awt.image.*;
+import java.util.*;
+import java.io.*;
+
+/**
+	Builds {@code .ico} files from images; the mirror of {@link org.qteam.tinyicon.structs.IconDir IconDir},
+	{@link org.qteam.tinyicon.structs.IconDirEntry IconDirEntry} and {@link org.qteam.tinyicon.structs.BitmapInfoHeader BitmapInfoHeader}.<br>
+	Each image is stored either as a 32 bpp bitmap ({@code BMP}, with alpha channel and {@code AND} mask) or compressed ({@code png}).
+
+	<p>Compressed entries are encoded in parallel (on an {@link Executor}) and buffered in memory before anything is written, since the
+	directory needs their sizes; each one is released as soon as it is written. Bitmap entries are written row by row, straight from
+	the pixels, so they are never buffered.
+
+	<p>Images are not copied when added: they must not be modified until the file is written.
+
+	<p>Example:
+	<blockquote>
+		{@code // 16x16 and 32x32 bitmaps plus a 256x256 png}<br>
+		{@code new IconWriter ().addImage (img16, false).addImage (img32, false).addImage (img256, true).write (os);}
+	</blockquote>
+*/
+public final class IconWriter
+{
+	// Icon type (1 = icon, 2 = cursor)
+	private final static int ICON_TYPE = 1;
+
+	// Size of ICONDIR, ICONDIRENTRY and BITMAPINFOHEADER
+	private final static int ICONDIR_SIZE      = 6;
+	private final static int ICONDIRENTRY_SIZE = 16;
+	private final static int BIH_SIZE          = 40;
+
+	// Maximum width and height of an entry
+	private final static int MAX_SIZE = 256;
+
+	private final Executor executor;
+	private final PngEncoder encoder;
+
+	private final ArrayList <Entry> entries = new ArrayList ();
+
+	// An image to be written
+	private static final class Entry
+	{
+		final ArgbPixels px;
+		final boolean png;
+
+		Entry (ArgbPixels px, boolean png)
+		{
+			this.px  = px;
+			this.png = png;
+		}
+	}
+
+	/**
+		Constructs a new {@code IconWriter} that encodes compressed entries with {@link PngEncoder#SMALLEST} on the
+		{@link ForkJoinPool#commonPool common pool}.
+	*/
+	public IconWriter ()
+	{
+		this (null, PngEncoder.SMALLEST);
+	}
+
+	/**
+		Constructs a new {@code IconWriter}.
+
+		@param executor The {@link Executor} used to encode compressed entries or {@code null} to use the {@link ForkJoinPool#commonPool common pool}.
+		@param encoder  The {@link PngEncoder} used to encode compressed entries.
+		@throws IllegalArgumentException if {@code encoder} is {@code null}.
+	*/
+	public IconWriter (Executor executor, PngEncoder encoder)
+	{
+		if (encoder == null)
+			throw new IllegalArgumentException ("Invalid encoder");
+
+		this.executor = executor;
+		this.encoder  = encoder;
+	}
+
+	/**
+		Adds an image.
+
+		@param img The image (up to 256x256 pixels).
+		@param png {@code true} to store the image compressed ({@code png}), {@code false} to store it as a 32 bpp bitmap.
+		@return this {@code IconWriter}.
+		@throws IllegalArgumentException if the image is too big.
+	*/
+	public IconWriter addImage (BufferedImage img, boolean png)
+	{
+		return (add (ArgbPixels.of (img), png));
+	}
+
+	/**
+		Adds an image given as {@code ARGB} pixels (not premultiplied).
+
+		@param argb   The pixels.
+		@param ofs    The offset of the first pixel (top left).
+		@param scan   The distance between two rows.
+		@param width  The width of the image (up to 256).
+		@param height The height of the image (up to 256).
+		@param png    {@code true} to store the image compressed ({@code png}), {@code false} to store it as a 32 bpp bitmap.
+		@return this {@code IconWriter}.
+		@throws IllegalArgumentException if the image is too big or the pixel layout is invalid.
+	*/
+	public IconWriter addImage (int argb [], int ofs, int scan, int width, int height, boolean png)
+	{
+		return (add (new ArgbPixels (argb, ofs, scan, width, height), png));
+	}
+
+	/**
+		Returns the number of added images.
+		@return the number of images.
+	*/
+	public int size ()
+	{
+		return (entries.size ());
+	}
+
+	/**
+		Writes the {@code .ico} file to the given stream (the stream is not closed).
+		@param os The destination stream.
+		@throws IOException if an I/O error occurs or an image can't be encoded.
+		@throws IllegalStateException if no image was added.
+	*/
+	public void write (OutputStream os) throws IOException
+	{
+		if (entries.isEmpty ())
+			throw new IllegalStateException ("No images to write");
+
+		final int count = entries.size ();
+		final Executor exec = (executor == null) ? ForkJoinPool.commonPool () : executor;
+
+		// Encode all compressed entries in parallel
+		final ArrayList <CompletableFuture <byte []>> pngs = new ArrayList (count);
+
+		for (Entry e : entries)
+			pngs.add (e.png ? CompletableFuture.supplyAsync (() -> encoder.encode (e.px.data, e.px.ofs, e.px.scan, e.px.width, e.px.height), exec) : null);
+
+		final byte data [][] = new byte [count][];
+
+		for (int n = 0; n < count; n ++)
+			data [n] = (pngs.get (n) == null) ? null : join (pngs.get (n));
+
+		final BufferedOutputStream bos = new BufferedOutputStream (os, 1 << 16);
+		final byte hdr [] = new byte [ICONDIRENTRY_SIZE];
+
+		// ICONDIR
+		putWord (hdr, 0, 0);
+		putWord (hdr, 2, ICON_TYPE);
+		putWord (hdr, 4, count);
+
+		bos.write (hdr, 0, ICONDIR_SIZE);
+
+		// ICONDIRENTRY (width and height 0 mean 256)
+		int ofs = ICONDIR_SIZE + ICONDIRENTRY_SIZE * count;
+
+		for (int n = 0; n < count; n ++)
+		{
+			final ArgbPixels px = entries.get (n).px;
+			final int size = (data [n] != null) ? data [n].length : bitmapSize (px);
+
+			hdr [0] = (byte) px.width;
+			hdr [1] = (byte) px.height;
+			hdr [2] = 0;
+			hdr [3] = 0;
+
+			putWord  (hdr, 4, 1);
+			putWord  (hdr, 6, 32);
+			putDword (hdr, 8, size);
+			putDword (hdr, 12, ofs);
+
+			bos.write (hdr, 0, ICONDIRENTRY_SIZE);
+			ofs += size;
+		}
+
+		// Images
+		for (int n = 0; n < count; n ++)
+		{
+			if (data [n] != null)
+			{
+				bos.write (data [n]);
+
+				// Release it as soon as possible
+				data [n] = null;
+			}
+			else
+				writeBitmap (bos, entries.get (n).px);
+		}
+
+		bos.flush ();
+	}
+
+	/**
+		Writes the {@code .ico} file to the given channel (the channel is not closed).
+		@param ch The destination channel.
+		@throws IOException if an I/O error occurs or an image can't be encoded.
+		@throws IllegalStateException if no image was added.
+	*/
+	public void write (WritableByteChannel ch) throws IOException
+	{
+		write (Channels.newOutputStream (ch));
+	}
+
+	private IconWriter add (ArgbPixels px, boolean png)
+	{
+		if ((px.width > MAX_SIZE) || (px.height > MAX_SIZE))
+			throw new IllegalArgumentException ("Image too big: " + px.width + "x" + px.height + " (max " + MAX_SIZE + "x" + MAX_SIZE + ")");
+
+		entries.add (new Entry (px, png));
+		return (this);
+	}
+
+	// BITMAPINFOHEADER + XOR bitmap (32 bpp) + AND bitmap (1 bpp, dword aligned)
+	private static int bitmapSize (ArgbPixels px)
+	{
+		return (BIH_SIZE + ((px.width * px.height) << 2) + IconUtils.dwordPad (px.width) * px.height);
+	}
+
+	private static void writeBitmap (OutputStream os, ArgbPixels px) throws IOException
+	{
+		final int width  = px.width;
+		final int height = px.height;
+
+		final int mask_stride = IconUtils.dwordPad (width);
+		final byte bih [] = new byte [BIH_SIZE];
+
+		// BITMAPINFOHEADER (The height is the sum of the XOR and AND bitmaps)
+		putDword (bih, 0, BIH_SIZE);
+		putDword (bih, 4, width);
+		putDword (bih, 8, height << 1);
+		putWord  (bih, 12, 1);
+		putWord  (bih, 14, 32);
+		putDword (bih, 20, bitmapSize (px) - BIH_SIZE);
+
+		os.write (bih);
+
+		// XOR bitmap (BGRA, bottom-up)
+		final byte row [] = new byte [Math.max (width << 2, mask_stride)];
+
+		for (int y = height - 1; y >= 0; y --)
+		{
+			final int yofs = px.ofs + y * px.scan;
+
+			for (int x = 0, d = 0; x < width; x ++, d += 4)
+			{
+				final int c = px.data [yofs + x];
+
+				row [d]     = (byte) c;
+				row [d + 1] = (byte) (c >> 8);
+				row [d + 2] = (byte) (c >> 16);
+				row [d + 3] = (byte) (c >>> 24);
+			}
+
+			os.write (row, 0, width << 2);
+		}
+
+		// AND bitmap (1 = transparent pixel), bottom-up
+		for (int y = height - 1; y >= 0; y --)
+		{
+			final int yofs = px.ofs + y * px.scan;
+
+			Arrays.fill (row, 0, mask_stride, (byte) 0);
+
+			for (int x = 0; x < width; x ++)
+			{
+				if ((px.data [yofs + x] >>> 24) == 0)
+					row [x >> 3] |= (byte) (0x80 >> (x & 7));
+			}
+
+			os.write (row, 0, mask_stride);
+		}
+	}
+
+	// Wait for an encoded entry
+	private static byte [] join (CompletableFuture <byte []> f) throws IOException
+	{
+		try
+		{
+			return (f.join ());
+		}
+		catch (CompletionException e)
+		{
+			if (e.getCause () instanceof RuntimeException)
+				throw (RuntimeException) e.getCause ();
+
+			throw new IOException (e.getCause ());
+		}
+	}
+
+	// Little-endian
+	private static void putWord (byte buf [], int ofs, int val)
+	{
+		buf [ofs]     = (byte) val;
+		buf [ofs + 1] = (byte) (val >>> 8);
+	}
+
+	// Little-endian
+	private static void putDword (byte buf [], int ofs, int val)
+	{
+		buf [ofs]     = (byte) val;
+		buf [ofs + 1] = (byte) (val >>> 8);
+		buf [ofs + 2] = (byte) (val >>> 16);
+		buf [ofs + 3] = (byte) (val >>> 24);
+	}
+}
@@ -0,0 +1,25 @@
+package org.qteam.tinyicon;
+
+/**
+	Pixel format enum.<br>
+	These {@code constants} select the type of the {@link java.awt.image.BufferedImage BufferedImage} built when an icon is decoded
+	(See {@link TinyIcon#setPixelFormat TinyIcon.setPixelFormat} and {@link DecoderContext#DecoderContext(PixelFormat) DecoderContext}).
+	The decoders write each row straight in the chosen format, so no conversion is needed later (e.g. on every draw).
+*/
+public enum PixelFormat
+{
+	/** {@link java.awt.image.BufferedImage#TYPE_INT_ARGB TYPE_INT_ARGB} (the default); compressed ({@code png}) images are left as decoded by {@link javax.imageio.ImageIO ImageIO}. */
+	ARGB,
+
+	/** {@link java.awt.image.BufferedImage#TYPE_INT_ARGB_PRE TYPE_INT_ARGB_PRE}: the format drawn fastest by {@code Java2D} when the image is translucent. */
+	ARGB_PRE,
+
+	/**
+		{@link java.awt.image.BufferedImage#TYPE_INT_RGB TYPE_INT_RGB} when the image has no transparent or translucent pixels
+		(e.g. a bitmap whose {@code AND} mask is all opaque), {@link #ARGB_PRE} otherwise.
+	*/
+	OPAQUE_RGB,
+
+	/** {@link java.awt.image.BufferedImage#TYPE_4BYTE_ABGR TYPE_4BYTE_ABGR}: one byte per component (not premultiplied). */
+	ABGR
+}
@@ -0,0 +1,434 @@
+package org.qteam.tinyicon;
+
+import java.util.concurrent.*;
+import java.awt.image.*;
+import java.util.zip.*;
+import java.io.*;
+
+/**
+	A {@code png} encoder working directly on {@code ARGB} pixels, with a selectable compression level and row filter.<br>
+	Compared to {@link javax.imageio.ImageIO#write ImageIO.write}, a {@code PngEncoder}:
+
+	<ul>
+		<li>reads the pixels of {@link BufferedImage#TYPE_INT_ARGB TYPE_INT_ARGB} images in place (no color model conversion).</li>
+		<li>writes 8 bit {@code RGB} images when all pixels are opaque, {@code RGBA} images otherwise.</li>
+		<li>lets you trade size for speed: see {@link #FASTEST} and {@link #SMALLEST}.</li>
+		<li>reuses its {@link Deflater deflaters} between images.</li>
+	</ul>
+
+	<p>This class is thread-safe: each encoding uses its own (pooled) deflater.
+
+	<p>Example:
+	<blockquote>
+		{@code final byte png [] = PngEncoder.FASTEST.encode (ti.getImage (0));}<br>
+		{@code final byte png2 [] = ti.getImageAsPng (0, PngEncoder.SMALLEST);}
+	</blockquote>
+*/
+public final class PngEncoder
+{
+	/** The fastest encoder (lowest compression level, no filter). */
+	public final static PngEncoder FASTEST = new PngEncoder (Deflater.BEST_SPEED, PngFilter.NONE);
+
+	/** The encoder that gives the smallest output (highest compression level, best filter); the slowest. */
+	public final static PngEncoder SMALLEST = new PngEncoder (Deflater.BEST_COMPRESSION, PngFilter.BEST);
+
+	private final static byte SIGNATURE [] = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	// Color types
+	private final static int COLOR_RGB  = 2;
+	private final static int COLOR_RGBA = 6;
+
+	// Size of IDAT chunks
+	private final static int CHUNK_SIZE = 1 << 16;
+
+	private final int level;
+	private final PngFilter filter;
+
+	// Deflaters not in use
+	private final ConcurrentLinkedQueue <Deflater> deflaters = new ConcurrentLinkedQueue ();
+
+	/**
+		Constructs a new {@code PngEncoder}.
+
+		@param level  The compression level (from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION} or {@link Deflater#DEFAULT_COMPRESSION}).
+		@param filter The row filter.
+		@throws IllegalArgumentException if the compression level is invalid or the filter is {@code null}.
+	*/
+	public PngEncoder (int level, PngFilter filter)
+	{
+		if (((level < Deflater.NO_COMPRESSION) || (level > Deflater.BEST_COMPRESSION)) && (level != Deflater.DEFAULT_COMPRESSION))
+			throw new IllegalArgumentException ("Invalid compression level: " + level);
+
+		if (filter == null)
+			throw new IllegalArgumentException ("Invalid filter");
+
+		this.level  = level;
+		this.filter = filter;
+	}
+
+	/**
+		Encodes the given image.
+		@param img The image to be encoded.
+		@return the {@code png} data.
+	*/
+	public byte [] encode (BufferedImage img)
+	{
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream ();
+
+		try
+		{
+			encode (img, baos);
+		}
+		catch (IOException e)
+		{
+			// Never thrown by a ByteArrayOutputStream
+			throw new UncheckedIOException (e);
+		}
+
+		return (baos.toByteArray ());
+	}
+
+	/**
+		Encodes the given image to the given stream (the stream is not closed).
+		@param img The image to be encoded.
+		@param os  The destination stream.
+		@throws IOException if an I/O error occurs.
+	*/
+	public void encode (BufferedImage img, OutputStream os) throws IOException
+	{
+		// Read the pixels in place (if possible)
+		final ArgbPixels px = ArgbPixels.of (img);
+
+		encode (px.data, px.ofs, px.scan, px.width, px.height, os);
+	}
+
+	/**
+		Encodes the given {@code ARGB} pixels (not premultiplied).
+
+		@param argb   The pixels.
+		@param ofs    The offset of the first pixel (top left).
+		@param scan   The distance between two rows.
+		@param width  The width of the image.
+		@param height The height of the image.
+		@return the {@code png} data.
+	*/
+	public byte [] encode (int argb [], int ofs, int scan, int width, int height)
+	{
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream ();
+
+		try
+		{
+			encode (argb, ofs, scan, width, height, baos);
+		}
+		catch (IOException e)
+		{
+			// Never thrown by a ByteArrayOutputStream
+			throw new UncheckedIOException (e);
+		}
+
+		return (baos.toByteArray ());
+	}
+
+	/**
+		Encodes the given {@code ARGB} pixels (not premultiplied) to the given stream (the stream is not closed).<br>
+		The image data is compressed and written one row at a time, so the whole {@code png} data is never held in memory.
+
+		@param argb   The pixels.
+		@param ofs    The offset of the first pixel (top left).
+		@param scan   The distance between two rows.
+		@param width  The width of the image.
+		@param height The height of the image.
+		@param os     The destination stream.
+		@throws IOException if an I/O error occurs.
+		@throws IllegalArgumentException if the size is invalid.
+	*/
+	public void encode (int argb [], int ofs, int scan, int width, int height, OutputStream os) throws IOException
+	{
+		if ((width <= 0) || (height <= 0))
+			throw new IllegalArgumentException ("Invalid image size: " + width + "x" + height);
+
+		if (filter != PngFilter.BEST)
+		{
+			write (argb, ofs, scan, width, height, filter, os);
+			return;
+		}
+
+		// Keep the smallest output
+		final ByteArrayOutputStream none     = new ByteArrayOutputStream ();
+		final ByteArrayOutputStream adaptive = new ByteArrayOutputStream ();
+
+		write (argb, ofs, scan, width, height, PngFilter.NONE, none);
+		write (argb, ofs, scan, width, height, PngFilter.ADAPTIVE, adaptive);
+
+		((none.size () <= adaptive.size ()) ? none : adaptive).writeTo (os);
+	}
+
+	// Encode with the given filter (not BEST)
+	private void write (int argb [], int ofs, int scan, int width, int height, PngFilter flt, OutputStream os) throws IOException
+	{
+		final boolean alpha = hasAlpha (argb, ofs, scan, width, height);
+		final int bpp = alpha ? 4 : 3;
+
+		// Header
+		final byte ihdr [] = new byte [13];
+
+		putInt (ihdr, 0, width);
+		putInt (ihdr, 4, height);
+
+		ihdr [8]  = 8;
+		ihdr [9]  = (byte) (alpha ? COLOR_RGBA : COLOR_RGB);
+		ihdr [10] = 0;
+		ihdr [11] = 0;
+		ihdr [12] = 0;
+
+		os.write (SIGNATURE);
+		writeChunk (os, "IHDR", ihdr, ihdr.length);
+
+		// Image data
+		final Deflater d = takeDeflater ();
+
+		try
+		{
+			final byte chunk [] = new byte [CHUNK_SIZE];
+			final int row_len = width * bpp;
+
+			byte prev [] = new byte [row_len];
+			byte cur  [] = new byte [row_len];
+
+			// Filtered rows (filter type + data); one per filter in adaptive mode
+			final byte out [][] = new byte [(flt == PngFilter.ADAPTIVE) ? 5 : 1][row_len + 1];
+			int used = 0;
+
+			for (int y = 0; y < height; y ++)
+			{
+				toBytes (argb, ofs + y * scan, width, alpha, cur);
+
+				final byte row [] = filterRow (flt, cur, prev, bpp, out);
+
+				d.setInput (row, 0, row_len + 1);
+
+				while (!d.needsInput ())
+				{
+					used += d.deflate (chunk, used, chunk.length - used);
+
+					if (used == chunk.length)
+					{
+						writeChunk (os, "IDAT", chunk, used);
+						used = 0;
+					}
+				}
+
+				final byte tmp [] = prev;
+				prev = cur;
+				cur  = tmp;
+			}
+
+			d.finish ();
+
+			while (!d.finished ())
+			{
+				used += d.deflate (chunk, used, chunk.length - used);
+
+				if (used == chunk.length)
+				{
+					writeChunk (os, "IDAT", chunk, used);
+					used = 0;
+				}
+			}
+
+			if (used > 0)
+				writeChunk (os, "IDAT", chunk, used);
+		}
+		finally
+		{
+			d.reset ();
+			deflaters.offer (d);
+		}
+
+		writeChunk (os, "IEND", new byte [0], 0);
+	}
+
+	private Deflater takeDeflater ()
+	{
+		Deflater d = deflaters.poll ();
+
+		return ((d != null) ? d : new Deflater (level));
+	}
+
+	// Filter a row; returns the (filter type + data) row to be compressed
+	private static byte [] filterRow (PngFilter flt, byte cur [], byte prev [], int bpp, byte out [][])
+	{
+		switch (flt)
+		{
+			case NONE:
+				return (filter (0, cur, prev, bpp, out [0]));
+
+			case SUB:
+				return (filter (1, cur, prev, bpp, out [0]));
+
+			case UP:
+				return (filter (2, cur, prev, bpp, out [0]));
+
+			case AVERAGE:
+				return (filter (3, cur, prev, bpp, out [0]));
+
+			case PAETH:
+				return (filter (4, cur, prev, bpp, out [0]));
+
+			default:
+			{
+				// Pick the row with the smallest sum of absolute (signed) values
+				byte best [] = null;
+				long best_sum = Long.MAX_VALUE;
+
+				for (int type = 0; type < 5; type ++)
+				{
+					final byte row [] = filter (type, cur, prev, bpp, out [type]);
+					long sum = 0;
+
+					for (int i = 1; i < row.length; i ++)
+						sum += Math.abs ((int) row [i]);
+
+					if (sum < best_sum)
+					{
+						best_sum = sum;
+						best     = row;
+					}
+				}
+
+				return (best);
+			}
+		}
+	}
+
+	private static byte [] filter (int type, byte cur [], byte prev [], int bpp, byte out [])
+	{
+		final int len = cur.length;
+
+		out [0] = (byte) type;
+
+		switch (type)
+		{
+			// None
+			case 0:
+				System.arraycopy (cur, 0, out, 1, len);
+				break;
+
+			// Sub
+			case 1:
+				System.arraycopy (cur, 0, out, 1, bpp);
+
+				for (int i = bpp; i < len; i ++)
+					out [i + 1] = (byte) (cur [i] - cur [i - bpp]);
+
+				break;
+
+			// Up
+			case 2:
+				for (int i = 0; i < len; i ++)
+					out [i + 1] = (byte) (cur [i] - prev [i]);
+
+				break;
+
+			// Average
+			case 3:
+				for (int i = 0; i < bpp; i ++)
+					out [i + 1] = (byte) (cur [i] - ((prev [i] & 0xFF) >> 1));
+
+				for (int i = bpp; i < len; i ++)
+					out [i + 1] = (byte) (cur [i] - (((cur [i - bpp] & 0xFF) + (prev [i] & 0xFF)) >> 1));
+
+				break;
+
+			// Paeth
+			default:
+				for (int i = 0; i < bpp; i ++)
+					out [i + 1] = (byte) (cur [i] - prev [i]);
+
+				for (int i = bpp; i < len; i ++)
+					out [i + 1] = (byte) (cur [i] - paeth (cur [i - bpp] & 0xFF, prev [i] & 0xFF, prev [i - bpp] & 0xFF));
+
+				break;
+		}
+
+		return (out);
+	}
+
+	private static int paeth (int a, int b, int c)
+	{
+		final int p  = a + b - c;
+		final int pa = Math.abs (p - a);
+		final int pb = Math.abs (p - b);
+		final int pc = Math.abs (p - c);
+
+		if ((pa <= pb) && (pa <= pc))
+			return (a);
+
+		return ((pb <= pc) ? b : c);
+	}
+
+	// Convert a row of ARGB pixels to RGB(A) bytes
+	private static void toBytes (int argb [], int ofs, int width, boolean alpha, byte dest [])
+	{
+		int d = 0;
+
+		for (int x = 0; x < width; x ++)
+		{
+			final int c = argb [ofs + x];
+
+			dest [d ++] = (byte) (c >> 16);
+			dest [d ++] = (byte) (c >> 8);
+			dest [d ++] = (byte) c;
+
+			if (alpha)
+				dest [d ++] = (byte) (c >>> 24);
+		}
+	}
+
+	private static boolean hasAlpha (int argb [], int ofs, int scan, int width, int height)
+	{
+		for (int y = 0; y < height; y ++)
+		{
+			final int yofs = ofs + y * scan;
+
+			for (int x = 0; x < width; x ++)
+			{
+				if ((argb [yofs + x] >>> 24) != 0xFF)
+					return (true);
+			}
+		}
+
+		return (false);
+	}
+
+	private static void writeChunk (OutputStream os, String type, byte data [], int len) throws IOException
+	{
+		final byte hdr [] = new byte [8];
+		final CRC32 crc = new CRC32 ();
+
+		putInt (hdr, 0, len);
+
+		for (int i = 0; i < 4; i ++)
+			hdr [4 + i] = (byte) type.charAt (i);
+
+		crc.update (hdr, 4, 4);
+		crc.update (data, 0, len);
+
+		os.write (hdr);
+		os.write (data, 0, len);
+
+		final byte tail [] = new byte [4];
+		putInt (tail, 0, (int) crc.getValue ());
+
+		os.write (tail);
+	}
+
+	// Big-endian
+	private static void putInt (byte buf [], int ofs, int val)
+	{
+		buf [ofs]     = (byte) (val >>> 24);
+		buf [ofs + 1] = (byte) (val >>> 16);
+		buf [ofs + 2] = (byte) (val >>> 8);
+		buf [ofs + 3] = (byte) val;
+	}
+}
@@ -0,0 +1,33 @@
+package org.qteam.tinyicon;
+
+/**
+	Row filter enum.<br>
+	These {@code constants} select the {@code png} row filters used by a {@link PngEncoder}; filters make rows easier to compress,
+	at the cost of some encoding time.
+*/
+public enum PngFilter
+{
+	/** No filter (the fastest). */
+	NONE,
+
+	/** Each byte is stored as the difference from the same byte of the previous pixel. */
+	SUB,
+
+	/** Each byte is stored as the difference from the same byte of the previous row. */
+	UP,
+
+	/** Each byte is stored as the difference from the average of the previous pixel and the previous row. */
+	AVERAGE,
+
+	/** Each byte is stored as the difference from the {@code Paeth} predictor of the previous pixel, previous row and previous row pixel. */
+	PAETH,
+
+	/** A filter is chosen for each row (the one with the smallest sum of absolute differences); good for photos and gradients. */
+	ADAPTIVE,
+
+	/**
+		The image is encoded both with {@link #NONE} and {@link #ADAPTIVE} and the smallest output is kept (twice the encoding time).<br>
+		Drawings with few colors (e.g. palette icons) are usually smaller without filters, while photos and gradients are smaller with them.
+	*/
+	BEST
+}
@@ -1,14 +1,18 @@
 package org.qteam.tinyicon;
 
 import org.qteam.tinyicon.structs.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 import java.util.logging.*;
 import java.util.stream.*;
 import java.awt.image.*;
 import javax.imageio.*;
+import java.nio.channels.*;
 import java.util.jar.*;
+import java.nio.file.*;
 import java.util.*;
 import java.text.*;
+import java.nio.*;
 import java.net.*;
 import java.io.*;
 
@@ -91,10 +95,18 @@ public final class TinyIcon
 	/** Current version of the TinyIcon library. */
 	private final static String LIB_VERSION = "0.90";
 
+	/** Name used for icons loaded from memory or streams. */
+	private final static String UNNAMED_ICON = "<unnamed>";
+
+	/** Loader used for favicons (default timeouts and deadline). */
+	private final static FaviconLoader FAVICON_LOADER = new FaviconLoader ();
+
 	private ArrayList <Icon> icons;
-	private final byte buf [];
+	private final IconReader reader;
 
 	private IconDir icondir;
+	private IconSource source;
+	private IconIndex index;
 	private String icon_name;
 
 	/**
@@ -103,7 +115,9 @@ public final class TinyIcon
 
 		@param filename_or_url The local path of the {@code .ico} file or a {@code remote address} to load {@code favicons}.
 		In case of {@code remote addresses} is not necessary to specify any icon name; a '{@code favicon.ico}' is automatically
-		appended to the {@link URL}. Accepted protocols are: {@code https}, {@code http} and {@code ftp}.
+		appended to the {@link URL}. Accepted protocols are: {@code https}, {@code http} and {@code ftp}.<br>
+		Favicons are downloaded with the default timeouts of {@link FaviconLoader}; use a custom {@link FaviconLoader} to change them
+		or to load favicons asynchronously.
 
 		@throws IOException              if an I/O exception occurs during loading the {@code .ico} file (e.g. a non existent file or {@link URL}).
 		@throws InvalidIconException     if the file is an invalid icon (e.g. a corrupted file or if you try to load a different file instead of a {@code .ico} one).
@@ -112,44 +126,193 @@ public final class TinyIcon
 	public TinyIcon (String filename_or_url) throws IOException, InvalidIconException, InvalidIconDataException
 	{
 		if (IconUtils.isURL (filename_or_url))
-			buf = loadIconFromUrl (filename_or_url);
+			reader = loadIconFromUrl (filename_or_url);
 		else
-			buf = loadIconFromLocalFile (filename_or_url);
+			reader = IconReader.wrap (loadIconFromLocalFile (filename_or_url));
 
-		// Process all icons inside 'buf'
-		processIcons ();
+		// Process all icons inside 'reader'
+		processIcons (e -> true);
 	}
 
-	private byte [] loadIconFromUrl (String url_string) throws IOException
+	/**
+		Constructs a new {@code TinyIcon} and loads / processes the specified local icon file.<br>
+		When {@code memory_mapped} is {@code true} the file is mapped in memory (See {@link FileChannel#map FileChannel.map}) and
+		all icon structures and images are decoded straight from the mapped region, without copying the file to the heap.
+		This is the preferred way when scanning large icon libraries.
+
+		<p>Note that a mapped file remains mapped until the {@code TinyIcon} is garbage collected; on some platforms
+		(e.g. Windows) the file can't be deleted or modified in the meantime.
+
+		@param file          The local {@code .ico} file.
+		@param memory_mapped {@code true} to map the file in memory, {@code false} to read it into a heap buffer.
+
+		@throws IOException              if an I/O exception occurs during loading the {@code .ico} file (e.g. a non existent file).
+		@throws InvalidIconException     if the file is an invalid icon (e.g. a corrupted file or if you try to load a different file instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public TinyIcon (File file, boolean memory_mapped) throws IOException, InvalidIconException, InvalidIconDataException
 	{
-		icon_name = "favicon.ico";
-		final URL url = new URL (url_string + "/" + icon_name);
+		this (file.toPath (), memory_mapped);
+	}
 
-		final ByteArrayOutputStream baos = new ByteArrayOutputStream ();
-		InputStream is = null;
+	/**
+		Constructs a new {@code TinyIcon} and loads / processes the specified local icon file.<br>
+		The whole file is read into a heap buffer; see {@link #TinyIcon(Path, boolean) TinyIcon (Path, boolean)} to map it in memory instead.
 
-		try
-		{
-			// Some websites give HTTP 403 error without user agent...
-			final URLConnection uc = url.openConnection ();
-			uc.addRequestProperty ("User-Agent", "Mozilla/4.0 (compatible; MSIE 8.0; Windows NT 6.1)");
+		@param path The path of the local {@code .ico} file.
+
+		@throws IOException              if an I/O exception occurs during loading the {@code .ico} file (e.g. a non existent file).
+		@throws InvalidIconException     if the file is an invalid icon (e.g. a corrupted file or if you try to load a different file instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public TinyIcon (Path path) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		this (path, false);
+	}
+
+	/**
+		Constructs a new {@code TinyIcon} and loads / processes the specified local icon file.<br>
+		When {@code memory_mapped} is {@code true} the file is mapped in memory (See {@link FileChannel#map FileChannel.map}) and
+		all icon structures and images are decoded straight from the mapped region, without copying the file to the heap.
+
+		<p>Note that a mapped file remains mapped until the {@code TinyIcon} is garbage collected; on some platforms
+		(e.g. Windows) the file can't be deleted or modified in the meantime.
+
+		@param path          The path of the local {@code .ico} file.
+		@param memory_mapped {@code true} to map the file in memory, {@code false} to read it into a heap buffer.
+
+		@throws IOException              if an I/O exception occurs during loading the {@code .ico} file (e.g. a non existent file).
+		@throws InvalidIconException     if the file is an invalid icon (e.g. a corrupted file or if you try to load a different file instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public TinyIcon (Path path, boolean memory_mapped) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		this (memory_mapped ? IconReader.wrap (mapIconFromLocalFile (path)) : IconReader.wrap (Files.readAllBytes (path)), path.getFileName ().toString ());
+	}
 
-			is = uc.getInputStream ();
+	/**
+		Constructs a new {@code TinyIcon} and processes the icon data contained in the whole {@code byte array}.<br>
+		The array is used in place (no copy), so it must not be modified while the {@code TinyIcon} is in use.
 
-			final byte tmpBuf [] = new byte [4096]; 
-			int nBytes;
+		@param buf The buffer that contains the icon data.
 
-			while ((nBytes = is.read (tmpBuf)) > 0)
-				baos.write (tmpBuf, 0, nBytes);
+		@throws InvalidIconException     if the data is an invalid icon (e.g. corrupted data or a different format instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public TinyIcon (byte buf []) throws InvalidIconException, InvalidIconDataException
+	{
+		this (IconReader.wrap (buf), UNNAMED_ICON);
+	}
+
+	/**
+		Constructs a new {@code TinyIcon} and processes the icon data contained in a region of the given {@code byte array}.<br>
+		The array is used in place (no copy), so it must not be modified while the {@code TinyIcon} is in use.
 
-			return (baos.toByteArray ());
+		@param buf The buffer that contains the icon data.
+		@param ofs The offset in the buffer where the icon data starts.
+		@param len The length of the icon data.
+
+		@throws InvalidIconException     if the data is an invalid icon (e.g. corrupted data or a different format instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+		@throws IndexOutOfBoundsException if the region is out of range.
+	*/
+	public TinyIcon (byte buf [], int ofs, int len) throws InvalidIconException, InvalidIconDataException
+	{
+		this (IconReader.wrap (buf, ofs, len), UNNAMED_ICON);
+	}
+
+	/**
+		Constructs a new {@code TinyIcon} and processes the icon data contained in the given buffer (from its position up to its limit).<br>
+		Heap, direct and memory-mapped buffers are read in place (no copy); the position, limit and byte order of the buffer are not changed.
+
+		@param buf The buffer that contains the icon data.
+
+		@throws InvalidIconException     if the data is an invalid icon (e.g. corrupted data or a different format instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public TinyIcon (ByteBuffer buf) throws InvalidIconException, InvalidIconDataException
+	{
+		this (IconReader.wrap (buf), UNNAMED_ICON);
+	}
+
+	/**
+		Constructs a new {@code TinyIcon} and processes the icon data read from the given {@link InputStream}.<br>
+		The stream is read until its end, but it is not closed.
+
+		@param is The stream that provides the icon data.
+
+		@throws IOException              if an I/O exception occurs during reading the stream.
+		@throws InvalidIconException     if the data is an invalid icon (e.g. corrupted data or a different format instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public TinyIcon (InputStream is) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		this (IconUtils.readFully (is, is.available ()), UNNAMED_ICON);
+	}
+
+	/**
+		Constructs a new {@code TinyIcon} and processes the icon data provided by the given {@link IconReader}.<br>
+		This is the most general constructor; all other constructors end up here.
+
+		@param reader    The reader that provides the icon data.
+		@param icon_name The name of the icon (used in error messages and returned by {@link #getIconName getIconName}).
+
+		@throws InvalidIconException     if the data is an invalid icon (e.g. corrupted data or a different format instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public TinyIcon (IconReader reader, String icon_name) throws InvalidIconException, InvalidIconDataException
+	{
+		this.reader    = reader;
+		this.icon_name = icon_name;
+
+		// Process all icons inside 'reader'
+		processIcons (e -> true);
+	}
+
+	/**
+		Constructs a new {@code TinyIcon} that reads the icon data from the given {@link SeekableByteChannel} on demand.<br>
+		Only the icon directory and the image headers are read first (the directory needs just {@code 6 + 16 * count} bytes);
+		then, only the byte ranges ({@link IconDirEntry#imageOffset imageOffset} / {@link IconDirEntry#bytesInRes bytesInRes})
+		of the entries accepted by {@code selection} are read, when their images are decoded.<br>
+		This is useful, for example, to get a single resolution out of a big icon without reading all other images.
+
+		<p>Only the selected entries are available as {@link Icon icons} (e.g. {@link #getNumOfIcons getNumOfIcons} returns the
+		number of selected entries). Images are decoded on demand, so the channel must be kept open until all needed
+		images have been obtained; it is never closed by {@code TinyIcon}.
+
+		<p>Example:<br>
+		{@code // Read only the 256x256 images (A width of 0 means 256 pixels)}<br>
+		{@code final TinyIcon ti = new TinyIcon (ch, "myicon.ico", e -> (e.width == 0));}
+
+		@param channel   The channel that provides the icon data.
+		@param icon_name The name of the icon (used in error messages and returned by {@link #getIconName getIconName}).
+		@param selection a {@link Predicate} expression to select the entries to be read.
+
+		@throws IOException              if an I/O exception occurs during reading the channel.
+		@throws InvalidIconException     if the data is an invalid icon (e.g. corrupted data or a different format instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public TinyIcon (SeekableByteChannel channel, String icon_name, Predicate <IconDirEntry> selection) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		this.reader    = new ChannelReader (channel);
+		this.icon_name = icon_name;
+
+		try
+		{
+			processIcons (selection);
 		}
-		finally
+		catch (UncheckedIOException e)
 		{
-			IconUtils.closeInputStream (is);
+			throw e.getCause ();
 		}
 	}
 
+	private IconReader loadIconFromUrl (String url_string) throws IOException
+	{
+		icon_name = FaviconLoader.FAVICON_NAME;
+		return (FAVICON_LOADER.read (url_string));
+	}
+
 	private byte [] loadIconFromLocalFile (String file) throws IOException
 	{
 		final File f = new File (file);
@@ -164,229 +327,51 @@ public final class TinyIcon
 		}
 	}
 
-	private void applyAndTable (BitmapInfoHeader bih, int img_buf [], int andMaskOffset)
+	private static ByteBuffer mapIconFromLocalFile (Path path) throws IOException
 	{
-		final int stride = IconUtils.dwordPad (bih.width);
-
-		// Pad width to the nearest byte (Round up)
-		final int pwidth = IconUtils.bytePad (bih.width);
-
-		for (int y = 0; y < bih.height; y ++)
+		// The mapping stays valid even after the channel is closed
+		try (final FileChannel fc = FileChannel.open (path, StandardOpenOption.READ))
 		{
-			final int buf_yofs = andMaskOffset + stride * y;
-			final int img_yofs = bih.width * (bih.height - 1 - y);
-
-			for (int x = 0; x < pwidth; x ++)
-			{
-				final int val = IconUtils.read_byte (buf, buf_yofs + x);
-
-				for (int z = 0; z < 8; z ++)
-				{
-					if ((val & (1 << z)) == 0)
-					{
-						final int xofs = (x << 3) | (7 - z);
-
-						// Apply 'full alpha' to the XOR map
-						if (xofs < bih.width)
-							img_buf [img_yofs + xofs] |= (0xFF << 24);
-					}
-				}
-			}
+			return (fc.map (FileChannel.MapMode.READ_ONLY, 0, fc.size ()));
 		}
 	}
 
-	private void processIcons () throws IOException, InvalidIconException, InvalidIconDataException
+	private void processIcons (Predicate <IconDirEntry> selection) throws InvalidIconException, InvalidIconDataException
 	{
 		// Create the 'main entry'
-		icondir = new IconDir (icon_name, buf);
+		icondir = new IconDir (icon_name, reader);
 
 		// Allocate the list of icons
-		icons = new ArrayList (icondir.count);
+		icons  = new ArrayList (icondir.count);
+		source = new IconSource (icon_name, reader);
 
-		// Parse Icon(s)
+		// Parse Icon(s); images are decoded only on demand (See Icon.getImage)
 		for (int n = 0; n < icondir.count; n ++)
 		{
 			final IconDirEntry ide = icondir.entries [n];
 			final IconImage icoimg = ide.iconimage;
 
+			// Skip unwanted entries
+			if (!selection.test (ide))
+				continue;
+
 			// Icon is a bitmap
 			if (icoimg != null)
 			{
 				final BitmapInfoHeader bih = icoimg.header;
-				final int pal [] = icoimg.pal;
-
-				final int width         = bih.width;
-				final int height        = bih.height;
-				final int stride        = bih.stride;
-				final int colorCount    = bih.colorCount;
-				final int colorMapOfs   = icoimg.colorMapOffset;
-				final int xorMaskOffset = icoimg.xorMaskOffset;
-				final int andMaskOffset = icoimg.andMaskOffset;
-
-				// Create an ARGB BufferedImage
-				final int img_buf [] = new int [width * height];
-				final BufferedImage img = new BufferedImage (width, height, BufferedImage.TYPE_INT_ARGB);
-
-				switch (bih.bitCount)
-				{
-					// 2 colors
-					case 1:
-					{
-						// Pad width to the nearest byte (Round up)
-						final int pwidth = IconUtils.bytePad (width);
-
-						// Xor table
-						for (int y = 0; y < height; y ++)
-						{
-							final int buf_yofs = xorMaskOffset + stride * y;
-							final int img_yofs = width * (height - 1 - y);
-
-							for (int x = 0; x < pwidth; x ++)
-							{
-								final int val = IconUtils.read_byte (buf, buf_yofs + x);
-
-								for (int k = 0; k < 8; k ++)
-								{
-									final int xofs = (x << 3) | k;
-
-									if (xofs < width)
-										img_buf [img_yofs + xofs] = ((val & (1 << (7 - k))) != 0) ? pal [1] : pal [0];
-								}
-							}
-						}
-
-						// And table
-						applyAndTable (bih, img_buf, andMaskOffset);
-						break;
-					}
-
-					// 16 colors
-					case 4:
-					{
-						// Pad width to the nearest nibble (Round up)
-						final int pwidth = (width + 1) >> 1;
-
-						// Xor table
-						for (int y = 0; y < height; y ++)
-						{
-							final int buf_yofs = xorMaskOffset + stride * y;
-							final int img_yofs = width * (height - 1 - y);
-
-							for (int x = 0; x < pwidth; x ++)
-							{
-								final int val = IconUtils.read_byte (buf, buf_yofs + x);
-
-								final int xofs1 = x << 1;
-								final int xofs2 = xofs1 | 1;
-
-								// High nibble
-								if (xofs1 < width)
-									img_buf [img_yofs + xofs1] = pal [val >> 4];
-
-								// Low nibble
-								if (xofs2 < width)
-									img_buf [img_yofs + xofs2] = pal [val & 0x0F];
-							}
-						}
-
-						// And table
-						applyAndTable (bih, img_buf, andMaskOffset);
-						break;
-					}
-
-					// 256 colors
-					case 8:
-					{
-						// Xor table
-						for (int y = 0; y < height; y ++)
-						{
-							final int buf_yofs = xorMaskOffset + stride * y;
-							final int img_yofs = width * (height - 1 - y);
-
-							for (int x = 0; x < width; x ++)
-							{
-								final int val = IconUtils.read_byte (buf, buf_yofs + x);
-								img_buf [img_yofs + x] = pal [val];
-							}
-						}
-
-						// And table
-						applyAndTable (bih, img_buf, andMaskOffset);
-						break;
-					}
-
-					// 16777216 colors (True colors)
-					case 24:
-					{
-						// Xor table
-						for (int y = 0; y < height; y ++)
-						{
-							final int buf_yofs = colorMapOfs + stride * y;
-							final int img_yofs = width * (height - 1 - y);
-
-							for (int x = 0; x < width; x ++)
-							{
-								final int buf_ofs = buf_yofs + x * 3;
-
-								final int b = IconUtils.read_byte (buf, buf_ofs);
-								final int g = IconUtils.read_byte (buf, buf_ofs + 1);
-								final int r = IconUtils.read_byte (buf, buf_ofs + 2);
-
-								img_buf [img_yofs + x] = IconUtils.MAKE_RGB (r, g, b);
-							}
-						}
-
-						// And table
-						applyAndTable (bih, img_buf, andMaskOffset);
-						break;
-					}
-
-					// 16777216 colors (True colors) + alpha
-					case 32:
-					{
-						for (int y = 0; y < height; y ++)
-						{
-							final int buf_yofs = colorMapOfs + (width << 2) * y;
-							final int img_yofs = width * (height - 1 - y);
-
-							for (int x = 0; x < width; x ++)
-							{
-								final int buf_ofs = buf_yofs + (x << 2);
-
-								final int b = IconUtils.read_byte (buf, buf_ofs);
-								final int g = IconUtils.read_byte (buf, buf_ofs + 1);
-								final int r = IconUtils.read_byte (buf, buf_ofs + 2);
-								final int a = IconUtils.read_byte (buf, buf_ofs + 3);
-
-								img_buf [img_yofs + x] = IconUtils.MAKE_ARGB (a, r, g, b);
-							}
-						}
-
-						break;
-					}
-
-					default:
-						throw new InvalidIconDataException ("%s -> Unsupported color format! (bitCount = %d, colorCount = %d)\n", icon_name, bih.bitCount, colorCount);
-				}
-
-				// Set all image pixels
-				img.setRGB (0, 0, width, height, img_buf, 0, width);
-
-				// Create and add a new icon entry
-				icons.add (new Icon (width, height, bih.bitCount, false, img));
+				icons.add (new Icon (source, ide, n, bih.width, bih.height, bih.bitCount, false));
 			}
 
-			// Icon is a PNG
+			// Icon is a PNG (Get its size from the IHDR chunk)
 			else
 			{
-				// Decode the png via ImageIO
-				final ByteArrayInputStream bais = new ByteArrayInputStream (buf, ide.imageOffset, ide.bytesInRes);
-				final BufferedImage img = ImageIO.read (bais);
-
-				// Create and add a new icon entry
-				icons.add (new Icon (img.getWidth (), img.getHeight (), ide.bitCount, true, img));
+				final int size [] = IconDecoder.pngSize (icon_name, reader, ide);
+				icons.add (new Icon (source, ide, n, size [0], size [1], ide.bitCount, true));
 			}
 		}
+
+		// Build the size index once (it doesn't change when icons are sorted)
+		index = new IconIndex (icons);
 	}
 
 	// Get the appropriate comparator (null indicates: No sort)
@@ -507,12 +492,14 @@ public final class TinyIcon
 	}
 
 	/**
-		Returns how many images the {@code icon} has.
+		Returns how many images the {@code icon} has.<br>
+		For icons read from a {@link SeekableByteChannel channel}, only the selected images are counted.
+
 		@return the number of images that the {@code icon} file contains.
 	*/
 	public int getNumOfIcons ()
 	{
-		return (icondir.count);
+		return (icons.size ());
 	}
 
 	/**
@@ -525,7 +512,7 @@ public final class TinyIcon
 	*/
 	public Icon getIcon (int index)
 	{
-		if ((index < 0) || (index >= icondir.count))
+		if ((index < 0) || (index >= icons.size ()))
 			throw new IndexOutOfBoundsException (String.valueOf (index));
 
 		return (icons.get (index));
@@ -554,6 +541,21 @@ public final class TinyIcon
 		return (icon.orElse (null));
 	}
 
+	/**
+		Returns the size index of the icons, which finds icons by size (exact, nearest larger, nearest smaller or best bits per pixel)
+		without scanning or sorting the icons list and without decoding any image.
+
+		<p>Example:<br>
+		{@code // Get the smallest icon which is at least 48x48}<br>
+		{@code final Icon icon = ti.getIndex ().getNearestLarger (48, 48);}
+
+		@return the {@link IconIndex} of this {@code TinyIcon}.
+	*/
+	public IconIndex getIndex ()
+	{
+		return (index);
+	}
+
 	/**
 		Returns the last {@link Icon} in the internal icons list.
 
@@ -565,7 +567,7 @@ public final class TinyIcon
 	*/
 	public Icon getLastIcon ()
 	{
-		return (getIcon (icondir.count - 1));
+		return (getIcon (icons.size () - 1));
 	}
 
 	/**
@@ -605,6 +607,30 @@ public final class TinyIcon
 		return ((icon == null) ? null : icon.getImage ());
 	}
 
+	/**
+		Returns an image of the given size, rendered from the best icon for that size.<br>
+		The source icon is chosen from the icon information only (See {@link IconIndex#getBest IconIndex.getBest}): the exact size if present,
+		otherwise the nearest larger one, otherwise the nearest smaller one, with the most bits per pixel. Only that icon is decoded, then
+		it is resampled with an area-averaging (box) filter (See {@link Icon#getScaledImage Icon.getScaledImage}).
+
+		<p>Example:<br>
+		{@code // A 24x24 image, downscaled from the 32x32 icon if there isn't a 24x24 one}<br>
+		{@code final BufferedImage img = ti.renderImage (24, 24);}
+
+		@param width  The wanted width.
+		@param height The wanted height.
+		@return the image or {@code null} if there are no icons or the source image can't be decoded.
+		@throws IllegalArgumentException if the size is invalid.
+	*/
+	public BufferedImage renderImage (int width, int height)
+	{
+		if ((width <= 0) || (height <= 0))
+			throw new IllegalArgumentException ("Invalid image size: " + width + "x" + height);
+
+		final Icon icon = index.getBest (width, height, 32);
+		return ((icon == null) ? null : icon.getScaledImage (width, height));
+	}
+
 	/**
 		Returns the last {@link BufferedImage} in the internal icons list.
 
@@ -616,13 +642,14 @@ public final class TinyIcon
 	*/
 	public BufferedImage getLastImage ()
 	{
-		return (getIcon (icondir.count - 1).getImage ());
+		return (getIcon (icons.size () - 1).getImage ());
 	}
 
 	/**
 		Returns the {@code image} (as {@code png byte array}) at the specified position in the internal icons list.<br>
 		This method is similar to {@link #getImage(int) getImage (int)} but the returned {@link BufferedImage} is converted
-		to {@code png byte array} using the {@link ImageIO#write ImageIO.write} method.<br>
+		to {@code png byte array} using the {@link ImageIO#write ImageIO.write} method; compressed ({@code png}) icons are not decoded at all:
+		their original {@code png} data is returned as is (See {@link Icon#getImageAsPng Icon.getImageAsPng}).<br>
 		Initial order of the images (unless you sort them) depends in how they are stored in the {@code .ico} file (e.g. by an icon editor program).
 
 		@param index Position of the element to return.
@@ -632,17 +659,35 @@ public final class TinyIcon
 	*/
 	public byte [] getImageAsPng (int index)
 	{
-		if ((index < 0) || (index >= icondir.count))
+		if ((index < 0) || (index >= icons.size ()))
+			throw new IndexOutOfBoundsException (String.valueOf (index));
+
+		return (getIcon (index).getImageAsPng ());
+	}
+
+	/**
+		Returns the {@code image} (as {@code png byte array}) at the specified position in the internal icons list, converted with the given encoder.<br>
+		This method is similar to {@link #getImageAsPng(int) getImageAsPng (int)} but bitmap images are converted by {@code encoder}
+		(e.g. {@link PngEncoder#FASTEST} for a fast conversion); compressed ({@code png}) icons are still returned as is.
+
+		@param index   Position of the element to return.
+		@param encoder The {@link PngEncoder} to be used or {@code null} to use {@link ImageIO#write ImageIO.write}.
+		@return the {@code byte array} with the {@code png} data at the specified position in the list or {@code null} if an error occurs.
+		@throws IndexOutOfBoundsException if the {@code index} is out of range [({@code index} {@literal <} 0) || ({@code index} {@literal >=} getNumOfIcons ())].
+	*/
+	public byte [] getImageAsPng (int index, PngEncoder encoder)
+	{
+		if ((index < 0) || (index >= icons.size ()))
 			throw new IndexOutOfBoundsException (String.valueOf (index));
 
-		return (IconUtils.imgToPngBytes (getImage (index)));
+		return (getIcon (index).getImageAsPng (encoder));
 	}
 
 	/**
 		Returns the first occurence of the {@code image} (as {@code png byte array}) that matches the given {@code condition}.<br>
 		This method is similar to {@link #getImage(Predicate) getImage (Predicate &lt;Icon&gt;)} but the returned
 		{@link BufferedImage} is converted	to {@code png byte array} using the
-		{@link ImageIO#write ImageIO.write} method.<br>
+		{@link ImageIO#write ImageIO.write} method (the original data of compressed icons is returned as is).<br>
 		To build conditions, the methods of the class {@link Icon} can be used.
 
 		<p>Here are some examples:
@@ -663,8 +708,23 @@ public final class TinyIcon
 	*/
 	public byte [] getImageAsPng (Predicate <Icon> condition)
 	{
-		final BufferedImage img = getImage (condition);
-		return ((img == null) ? null : IconUtils.imgToPngBytes (img));
+		return (getImageAsPng (condition, null));
+	}
+
+	/**
+		Returns the first occurence of the {@code image} (as {@code png byte array}) that matches the given {@code condition}, converted with the given encoder.<br>
+		This method is similar to {@link #getImageAsPng(Predicate) getImageAsPng (Predicate &lt;Icon&gt;)} but bitmap images are converted
+		by {@code encoder}; compressed ({@code png}) icons are still returned as is.
+
+		@param condition a {@link Predicate} expression to be evaluated.
+		@param encoder   The {@link PngEncoder} to be used or {@code null} to use {@link ImageIO#write ImageIO.write}.
+		@return the first {@code image} (as {@code png byte array}) that matches the specified {@code condition} or
+		{@code null} if an error occurs or if the {@code condition} is not satisfied.
+	*/
+	public byte [] getImageAsPng (Predicate <Icon> condition, PngEncoder encoder)
+	{
+		final Icon icon = getIcon (condition);
+		return ((icon == null) ? null : icon.getImageAsPng (encoder));
 	}
 
 	/**
@@ -741,11 +801,109 @@ public final class TinyIcon
 		return (extractImages (i -> true));
 	}
 
+	/**
+		Extracts all images (as {@link BufferedImage}) that match the given {@code condition}, decoding them in parallel.<br>
+		This method is similar to {@link #extractImages(Predicate) extractImages (Predicate &lt;Icon&gt;)}, but the images not decoded yet
+		are decoded concurrently on the given {@link Executor}; it returns when all images are available. The order of the returned
+		images is the same as the order of the icons list; an image that can't be decoded is logged and returned as {@code null}.
+
+		<p>Example:<br>
+		{@code // Decode all images on the common pool}<br>
+		{@code final ArrayList <BufferedImage> list = ti.extractImages (i -> true, null);}
+
+		@param condition a {@link Predicate} expression to be evaluated.
+		@param executor  The {@link Executor} used to decode the images or {@code null} to use the {@link ForkJoinPool#commonPool common pool}.
+		@return a new {@link ArrayList} containing all images that match the specified {@code condition} or an empty
+		{@link ArrayList} if the {@code condition} is not satisfied.
+		@see #decodeImagesAsync(Predicate, Executor) decodeImagesAsync (Predicate &lt;Icon&gt;, Executor)
+	*/
+	public ArrayList <BufferedImage> extractImages (Predicate <Icon> condition, Executor executor)
+	{
+		final ArrayList <CompletableFuture <BufferedImage>> futures = decodeImagesAsync (condition, executor);
+		final ArrayList <BufferedImage> dest = new ArrayList (futures.size ());
+
+		for (CompletableFuture <BufferedImage> f : futures)
+		{
+			try
+			{
+				dest.add (f.join ());
+			}
+			catch (CompletionException | CancellationException e)
+			{
+				Logger.getLogger (TinyIcon.class.getName ()).log (Level.SEVERE, null, (e.getCause () != null) ? e.getCause () : e);
+				dest.add (null);
+			}
+		}
+
+		return (dest);
+	}
+
+	/**
+		Decodes all images that match the given {@code condition} concurrently, on the given {@link Executor}.<br>
+		One future is returned for each matching icon, in the same order as the icons list; each future completes with the decoded image
+		or, if the image can't be decoded, exceptionally with the error of that entry ({@link IOException}, {@link InvalidIconDataException}
+		or a {@link RuntimeException}), without affecting the other entries.
+		Images already decoded complete immediately; the biggest images are submitted first, so they don't end up last on a busy executor.
+
+		<p>Decoded images are kept by their {@link Icon icons}, so the following {@link Icon#getImage getImage} calls don't decode them again.
+
+		@param condition a {@link Predicate} expression to be evaluated.
+		@param executor  The {@link Executor} used to decode the images or {@code null} to use the {@link ForkJoinPool#commonPool common pool}.
+		@return a new {@link ArrayList} with the futures of all images that match the specified {@code condition}.
+	*/
+	public ArrayList <CompletableFuture <BufferedImage>> decodeImagesAsync (Predicate <Icon> condition, Executor executor)
+	{
+		final Executor exec = (executor == null) ? ForkJoinPool.commonPool () : executor;
+		final ArrayList <Icon> flt_icons = extractIcons (condition);
+		final ArrayList <CompletableFuture <BufferedImage>> dest = new ArrayList (flt_icons.size ());
+
+		for (int n = 0; n < flt_icons.size (); n ++)
+			dest.add (new CompletableFuture ());
+
+		// Submit the biggest images first (results keep the list order)
+		final Integer order [] = new Integer [flt_icons.size ()];
+
+		for (int n = 0; n < order.length; n ++)
+			order [n] = n;
+
+		Arrays.sort (order, Comparator.comparing ((Integer n) -> flt_icons.get (n).getArea ()).reversed ());
+
+		for (int n : order)
+		{
+			final Icon icon = flt_icons.get (n);
+			final CompletableFuture <BufferedImage> cf = dest.get (n);
+
+			try
+			{
+				exec.execute
+				(
+					() ->
+					{
+						try
+						{
+							cf.complete (icon.decode ());
+						}
+						catch (Throwable e)
+						{
+							cf.completeExceptionally (e);
+						}
+					}
+				);
+			}
+			catch (RejectedExecutionException e)
+			{
+				cf.completeExceptionally (e);
+			}
+		}
+
+		return (dest);
+	}
+
 	/**
 		Extracts all images (as {@code png byte array}) that match the given {@code condition}.<br>
 		This method is similar to {@link #extractImages(Predicate) extractImages (Predicate &lt;Icon&gt;)} but the returned
 		{@link BufferedImage} is converted	to {@code png byte array} using the
-		{@link ImageIO#write ImageIO.write} method, however, if an error occurs during png image conversion,
+		{@link ImageIO#write ImageIO.write} method (the original data of compressed icons is returned as is), however, if an error occurs during png image conversion,
 		the (missing/{@code null}) image data is not added to the final {@link ArrayList}.
 		<p>When extracting images, a new {@link ArrayList} is created as subset of the original list.<br>
 
@@ -766,6 +924,21 @@ public final class TinyIcon
 		{@code condition} or an empty {@link ArrayList} if the {@code condition} is not satisfied.<br>
 	*/
 	public ArrayList <byte []> extractImagesAsPng (Predicate <Icon> condition)
+	{
+		return (extractImagesAsPng (condition, null));
+	}
+
+	/**
+		Extracts all images (as {@code png byte array}) that match the given {@code condition}, converted with the given encoder.<br>
+		This method is similar to {@link #extractImagesAsPng(Predicate) extractImagesAsPng (Predicate &lt;Icon&gt;)} but bitmap images
+		are converted by {@code encoder}; compressed ({@code png}) icons are still returned as is.
+
+		@param condition a {@link Predicate} expression to be evaluated.
+		@param encoder   The {@link PngEncoder} to be used or {@code null} to use {@link ImageIO#write ImageIO.write}.
+		@return a new {@link ArrayList} containing all images (as {@code png byte array}) that match the specified
+		{@code condition} or an empty {@link ArrayList} if the {@code condition} is not satisfied.
+	*/
+	public ArrayList <byte []> extractImagesAsPng (Predicate <Icon> condition, PngEncoder encoder)
 	{
 		final ArrayList <Icon> flt_icons = extractIcons (condition);
 		final ArrayList <byte []> dest = new ArrayList (flt_icons.size ());
@@ -774,7 +947,7 @@ public final class TinyIcon
 		(
 			(icon) ->
 			{
-				final byte tmp [] = IconUtils.imgToPngBytes (icon.getImage ());
+				final byte tmp [] = icon.getImageAsPng (encoder);
 
 				if (tmp != null)
 					dest.add (tmp);
@@ -799,6 +972,134 @@ public final class TinyIcon
 		return (extractImagesAsPng (i -> true));
 	}
 
+	/**
+		Writes a new {@code .ico} file that contains only the icons matching the given {@code condition}, in the order of the icons list.<br>
+		The raw data of each entry is copied as is (no image is decoded or encoded); only the directory is rebuilt.
+		For icons read from a {@link FileChannel}, the data is copied with {@link FileChannel#transferTo FileChannel.transferTo}.
+
+		<p>Example:<br>
+		{@code // Keep only the 16x16, 32x32 and 48x48 images}<br>
+		{@code ti.writeIcons (i -> ((i.getWidth () == 16) || (i.getWidth () == 32) || (i.getWidth () == 48)), ch);}
+
+		@param condition a {@link Predicate} expression to be evaluated.
+		@param ch        The destination channel (it is not closed).
+		@return the number of written icons (if no icon matches nothing is written, since an {@code .ico} file can't be empty).
+		@throws IOException if an I/O error occurs.
+	*/
+	public int writeIcons (Predicate <Icon> condition, WritableByteChannel ch) throws IOException
+	{
+		final List <IconDirEntry> entries = icons.stream ().filter (condition).map (Icon :: getEntry).collect (Collectors.toList ());
+
+		if (entries.isEmpty ())
+			return (0);
+
+		try
+		{
+			IconSubset.write (reader, entries, ch);
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause ();
+		}
+		catch (IndexOutOfBoundsException | IllegalArgumentException e)
+		{
+			throw new IOException (icon_name + " -> Entry out of the icon data", e);
+		}
+
+		return (entries.size ());
+	}
+
+	/**
+		Writes a new {@code .ico} file that contains only the icons matching the given {@code condition}, in the order of the icons list.<br>
+		See {@link #writeIcons(Predicate, WritableByteChannel) writeIcons (Predicate &lt;Icon&gt;, WritableByteChannel)}.
+
+		@param condition a {@link Predicate} expression to be evaluated.
+		@param os        The destination stream (it is not closed).
+		@return the number of written icons (if no icon matches nothing is written).
+		@throws IOException if an I/O error occurs.
+	*/
+	public int writeIcons (Predicate <Icon> condition, OutputStream os) throws IOException
+	{
+		return (writeIcons (condition, Channels.newChannel (os)));
+	}
+
+	/**
+		Copies the entries of a local {@code .ico} file accepted by {@code selection} into a new {@code .ico} file.<br>
+		Only the directory and the image headers of the source are read; the accepted entries are copied file to file with
+		{@link FileChannel#transferTo FileChannel.transferTo} (no image is decoded or encoded).
+
+		<p>Example:<br>
+		{@code // Drop the 256x256 images (A width of 0 means 256 pixels)}<br>
+		{@code TinyIcon.writeIcons (src, dest, e -> (e.width != 0));}
+
+		@param src       The path of the source {@code .ico} file.
+		@param dest      The path of the new {@code .ico} file (replaced if it exists; not created if no entry is accepted).
+		@param selection a {@link Predicate} expression to select the entries to be copied.
+		@return the number of copied entries.
+
+		@throws IOException              if an I/O error occurs.
+		@throws InvalidIconException     if the source is an invalid icon.
+		@throws InvalidIconDataException if the source has wrong data inside.
+	*/
+	public static int writeIcons (Path src, Path dest, Predicate <IconDirEntry> selection) throws IOException, InvalidIconException, InvalidIconDataException
+	{
+		try (final FileChannel in = FileChannel.open (src, StandardOpenOption.READ))
+		{
+			final TinyIcon ti = new TinyIcon (in, src.getFileName ().toString (), selection);
+
+			if (ti.getNumOfIcons () == 0)
+				return (0);
+
+			try (final FileChannel out = FileChannel.open (dest, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				return (ti.writeIcons (i -> true, out));
+			}
+		}
+	}
+
+	/**
+		Enables (or disables) a shared cache of decoded images for this {@code TinyIcon}.<br>
+		When enabled, images not decoded yet are looked up in the cache first (by content hash and entry index), and newly
+		decoded images are added to it; so the same icon, loaded many times, is decoded only once.
+		Note that cached images are shared between all {@code TinyIcon} instances: they must not be modified.
+
+		@param cache the cache to be used or {@code null} to disable caching.
+		@see DecodedIconCache
+	*/
+	public void setDecodedIconCache (DecodedIconCache cache)
+	{
+		source.cache = cache;
+	}
+
+	/**
+		Sets the pixel format of the images decoded from now on (images already decoded are not changed).<br>
+		The default is {@link PixelFormat#ARGB}; choosing the format here lets the decoders write the pixels straight in it,
+		instead of converting the images later (e.g. {@code Java2D} converts {@code ARGB} images to premultiplied ones on every draw).
+
+		<p>Example:<br>
+		{@code // Images ready to be drawn (opaque icons become TYPE_INT_RGB)}<br>
+		{@code ti.setPixelFormat (PixelFormat.OPAQUE_RGB);}
+
+		@param format The pixel format.
+		@throws IllegalArgumentException if {@code format} is {@code null}.
+	*/
+	public void setPixelFormat (PixelFormat format)
+	{
+		if (format == null)
+			throw new IllegalArgumentException ("Invalid pixel format");
+
+		source.format = format;
+	}
+
+	/**
+		Returns the pixel format of the decoded images.
+		@return the {@link PixelFormat}.
+	*/
+	public PixelFormat getPixelFormat ()
+	{
+		return (source.format);
+	}
+
 	/**
 		Returns the name of the {@code icon} file.
 		@return the name of this {@code icon}.
@@ -8,6 +8,7 @@
 		<li>The {@link org.qteam.tinyicon.Icon} entity that allows to get the associated {@link java.awt.image.BufferedImage}.</li>
 		<li>Some classes that define the main two {@code icon} exceptions such as {@link org.qteam.tinyicon.InvalidIconException} and {@link org.qteam.tinyicon.InvalidIconDataException}.</li>
 		<li>An utility class which provides methods to read data from buffers, convert images to {@code png} and testing {@code URLs}.</li>
+		<li>The {@link org.qteam.tinyicon.IconReader} abstraction used to parse icons in place from {@code byte arrays}, heap, direct or memory-mapped buffers.</li>
 	</ul>
 */
 package org.qteam.tinyicon;
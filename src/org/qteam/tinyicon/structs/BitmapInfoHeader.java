@@ -55,24 +55,24 @@ public final class BitmapInfoHeader
 		Constructs a new {@code BitmapInfoHeader}.
 
 		@param icon_name The name of the icon.
-		@param buf       The buffer that contains the icon data.
+		@param buf       The reader that contains the icon data.
 		@param image_ofs The offset in the buffer where the image data starts.
 
 		@throws InvalidIconDataException if the icon has wrong {@code bitCount} value (e.g. {@code bitCount} = 0).
 	*/
-	protected BitmapInfoHeader (String icon_name, byte buf [], int image_ofs) throws InvalidIconDataException
+	protected BitmapInfoHeader (String icon_name, IconReader buf, int image_ofs) throws InvalidIconDataException
 	{
-		size          = IconUtils.read_dword_le (buf, image_ofs);
-		width         = IconUtils.read_dword_le (buf, image_ofs + 4);
-		height        = IconUtils.read_dword_le (buf, image_ofs + 8) >> 1;
-		planes        = IconUtils.read_word_le  (buf, image_ofs + 12);
-		bitCount      = IconUtils.read_word_le  (buf, image_ofs + 14);
-		compression   = IconUtils.read_dword_le (buf, image_ofs + 16);
-		imageSize     = IconUtils.read_dword_le (buf, image_ofs + 20);
-		xPelsPerMeter = IconUtils.read_dword_le (buf, image_ofs + 24);
-		yPelsPerMeter = IconUtils.read_dword_le (buf, image_ofs + 28);
-		clrUsed       = IconUtils.read_dword_le (buf, image_ofs + 32);
-		clrImportant  = IconUtils.read_dword_le (buf, image_ofs + 36);
+		size          = buf.read_dword_le (image_ofs);
+		width         = buf.read_dword_le (image_ofs + 4);
+		height        = buf.read_dword_le (image_ofs + 8) >> 1;
+		planes        = buf.read_word_le  (image_ofs + 12);
+		bitCount      = buf.read_word_le  (image_ofs + 14);
+		compression   = buf.read_dword_le (image_ofs + 16);
+		imageSize     = buf.read_dword_le (image_ofs + 20);
+		xPelsPerMeter = buf.read_dword_le (image_ofs + 24);
+		yPelsPerMeter = buf.read_dword_le (image_ofs + 28);
+		clrUsed       = buf.read_dword_le (image_ofs + 32);
+		clrImportant  = buf.read_dword_le (image_ofs + 36);
 
 		// Try to get a real colorCount value
 		colorCount = getColorCountValue (icon_name);
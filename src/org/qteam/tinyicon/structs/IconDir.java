@@ -36,7 +36,7 @@ public final class IconDir
 	public final IconDirEntry entries [];
 
 	/**
-		Constructs a new {@code IconDir}.
+		Constructs a new {@code IconDir} from a {@code byte array}.
 
 		@param icon_name The name of the icon.
 		@param buf       The buffer that contains the icon data.
@@ -46,12 +46,31 @@ public final class IconDir
 	*/
 	public IconDir (String icon_name, byte buf []) throws InvalidIconException, InvalidIconDataException
 	{
-		reserved = IconUtils.read_word_le (buf, 0);
-		type     = IconUtils.read_word_le (buf, 2);
-		count    = IconUtils.read_word_le (buf, 4);
+		this (icon_name, IconReader.wrap (buf));
+	}
+
+	/**
+		Constructs a new {@code IconDir}.<br>
+		All data is read in place through the given {@link IconReader}.
+
+		@param icon_name The name of the icon.
+		@param buf       The reader that contains the icon data.
+
+		@throws InvalidIconException     if the file is an invalid icon (e.g. a corrupted file or if you try to load a different file instead of a {@code .ico} one).
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header} or unsupported {@code bitCount} value).
+	*/
+	public IconDir (String icon_name, IconReader buf) throws InvalidIconException, InvalidIconDataException
+	{
+		// Check the size first (Tiny data can't be read)
+		if (buf.length () < MIN_ICON_FILE_SIZE)
+			throw new InvalidIconException ("%s -> Invalid icon file", icon_name);
+
+		reserved = buf.read_word_le (0);
+		type     = buf.read_word_le (2);
+		count    = buf.read_word_le (4);
 
 		// Check if it is a valid icon
-		if ((buf.length < MIN_ICON_FILE_SIZE) || (reserved != 0x00) || (type != 0x01) || (count <= 0))
+		if ((reserved != 0x00) || (type != 0x01) || (count <= 0))
 			throw new InvalidIconException ("%s -> Invalid icon file", icon_name);
 
 		// Allocate 'count' IconDirEntries
@@ -36,21 +36,21 @@ public final class IconDirEntry
 		Constructs a new {@code IconDirEntry}.
 
 		@param icon_name The name of the icon.
-		@param buf       The buffer that contains the icon data.
+		@param buf       The reader that contains the icon data.
 		@param ofs       The offset in the buffer where this {@code IconDirEntry} starts.
 
 		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code image header}).
 	*/
-	protected IconDirEntry (String icon_name, byte buf [], int ofs) throws InvalidIconDataException
+	protected IconDirEntry (String icon_name, IconReader buf, int ofs) throws InvalidIconDataException
 	{
-		width       = IconUtils.read_byte     (buf, ofs);
-		height      = IconUtils.read_byte     (buf, ofs + 1);
-		colorCount  = IconUtils.read_byte     (buf, ofs + 2);
-		reserved    = IconUtils.read_byte     (buf, ofs + 3);
-		planes      = IconUtils.read_word_le  (buf, ofs + 4);
-		bitCount    = IconUtils.read_word_le  (buf, ofs + 6);
-		bytesInRes  = IconUtils.read_dword_le (buf, ofs + 8);
-		imageOffset = IconUtils.read_dword_le (buf, ofs + 12);
+		width       = buf.read_byte     (ofs);
+		height      = buf.read_byte     (ofs + 1);
+		colorCount  = buf.read_byte     (ofs + 2);
+		reserved    = buf.read_byte     (ofs + 3);
+		planes      = buf.read_word_le  (ofs + 4);
+		bitCount    = buf.read_word_le  (ofs + 6);
+		bytesInRes  = buf.read_dword_le (ofs + 8);
+		imageOffset = buf.read_dword_le (ofs + 12);
 
 		// Try to detect the image type
 		final boolean isPng = imageIsPng (icon_name, buf, imageOffset);
@@ -60,9 +60,9 @@ public final class IconDirEntry
 	}
 
 	// Try to detect if the current icon entry contains a compressed image
-	private boolean imageIsPng (String icon_name, byte buf [], int img_ofs) throws InvalidIconDataException
+	private boolean imageIsPng (String icon_name, IconReader buf, int img_ofs) throws InvalidIconDataException
 	{
-		final int header1 = IconUtils.read_dword_le (buf, img_ofs);
+		final int header1 = buf.read_dword_le (img_ofs);
 
 		// Check the header type
 		switch (header1)
@@ -75,7 +75,7 @@ public final class IconDirEntry
 			case 0x474E5089:
 			{
 				// Second part of signature
-				final int header2 = IconUtils.read_dword_le (buf, img_ofs + 4);
+				final int header2 = buf.read_dword_le (img_ofs + 4);
 
 				// PNG signature detected!
 				if (header2 == 0x0A1A0A0D)
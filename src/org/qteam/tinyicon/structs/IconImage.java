@@ -21,7 +21,7 @@ public final class IconImage
 	public final int pal [];
 
 	/**
-		Constructs a new {@code IconImage}.
+		Constructs a new {@code IconImage} from a {@code byte array}.
 
 		@param icon_name The name of the icon.
 		@param buf       The buffer that contains the icon data.
@@ -30,6 +30,20 @@ public final class IconImage
 		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code bitCount} value).
 	*/
 	public IconImage (String icon_name, byte buf [], int image_ofs) throws InvalidIconDataException
+	{
+		this (icon_name, IconReader.wrap (buf), image_ofs);
+	}
+
+	/**
+		Constructs a new {@code IconImage}.
+
+		@param icon_name The name of the icon.
+		@param buf       The reader that contains the icon data.
+		@param image_ofs The offset in the buffer where the image data starts.
+
+		@throws InvalidIconDataException if the icon has wrong data inside (e.g. invalid {@code bitCount} value).
+	*/
+	public IconImage (String icon_name, IconReader buf, int image_ofs) throws InvalidIconDataException
 	{
 		// Create a new BitmapInfoHeader
 		header = new BitmapInfoHeader (icon_name, buf, image_ofs);
@@ -68,7 +82,7 @@ public final class IconImage
 		}
 	}
 
-	private int [] makePalette (byte buf [])
+	private int [] makePalette (IconReader buf)
 	{
 		final int colorCount = header.colorCount;
 		final int palette [] = new int [colorCount];
@@ -77,9 +91,9 @@ public final class IconImage
 		{
 			final int colorOfs = colorMapOffset + (x << 2);
 
-			final int b = IconUtils.read_byte (buf, colorOfs);
-			final int g = IconUtils.read_byte (buf, colorOfs + 1);
-			final int r = IconUtils.read_byte (buf, colorOfs + 2);
+			final int b = buf.read_byte (colorOfs);
+			final int g = buf.read_byte (colorOfs + 1);
+			final int r = buf.read_byte (colorOfs + 2);
 
 			palette [x] = IconUtils.MAKE_RGB (r, g, b);
 		}